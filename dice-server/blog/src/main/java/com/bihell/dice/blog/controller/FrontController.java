@@ -1,27 +1,35 @@
 package com.bihell.dice.blog.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.bihell.dice.blog.model.blog.Article;
 import com.bihell.dice.blog.model.blog.Comment;
 import com.bihell.dice.blog.model.dto.Archive;
-import com.bihell.dice.blog.model.dto.CommentDto;
+import com.bihell.dice.blog.model.dto.CommentNode;
 import com.bihell.dice.blog.model.dto.MetaDto;
+import com.bihell.dice.blog.model.dto.SearchHit;
 import com.bihell.dice.framework.common.api.ApiCode;
 import com.bihell.dice.framework.common.api.ApiResult;
 import com.bihell.dice.framework.core.pagination.Pagination;
+import com.bihell.dice.framework.core.pagination.PageCursor;
 import com.bihell.dice.blog.service.blog.ArticleService;
+import com.bihell.dice.blog.service.blog.CommentIngestService;
 import com.bihell.dice.blog.service.blog.CommentService;
 import com.bihell.dice.blog.service.blog.MetaService;
 import com.bihell.dice.blog.service.blog.OptionService;
-import com.bihell.dice.blog.service.message.EmailService;
+import com.bihell.dice.blog.service.search.SearchService;
 import com.bihell.dice.config.constant.DiceConsts;
-import com.bihell.dice.framework.util.CacheUtil;
+import com.bihell.dice.config.properties.DiceCommentIngestProperties;
+import com.bihell.dice.framework.cache.annotation.HttpCache;
+import com.bihell.dice.framework.ratelimit.annotation.RateLimit;
 import com.bihell.dice.framework.util.DiceUtil;
 import com.bihell.dice.framework.common.api.RestResponse;
+import com.bihell.dice.blog.utils.CacheTagKeys;
 import com.bihell.dice.blog.utils.Types;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.util.StringUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -29,6 +37,9 @@ import java.util.Map;
 
 /**
  * 博客前台 Controller
+ * <p>
+ * 读接口通过 {@link HttpCache} 支持 ETag / Last-Modified 条件请求和响应体缓存,
+ * 文章点击量由 ArticleHitInterceptor 记录
  *
  * @author bihell
  * @since 2017/7/15 18:29
@@ -41,21 +52,30 @@ public class FrontController {
     private final ArticleService articleService;
     private final MetaService metaService;
     private final CommentService commentService;
-    private final EmailService emailService;
     private final OptionService optionService;
-    protected final CacheUtil cacheUtil;
+    private final SearchService searchService;
+    private final CommentIngestService commentIngestService;
+    private final DiceCommentIngestProperties commentIngestProperties;
 
 
     /**
      * 文章列表
      *
-     * @param page  第几页
-     * @param limit 每页数量
+     * @param page   第几页
+     * @param limit  每页数量
+     * @param cursor 游标,不为null时使用游标分页(第一页传空字符串),返回{@see CursorPaging<Article>}
      * @return {@see Pagination<Article>}
      */
     @GetMapping("article")
+    @HttpCache(value = "articles", tags = {CacheTagKeys.ARTICLE_LIST, CacheTagKeys.COMMENT_COUNT})
     public RestResponse home(@RequestParam(required = false, defaultValue = "1") Integer page,
-                             @RequestParam(required = false, defaultValue = DiceConsts.PAGE_SIZE) Integer limit) {
+                             @RequestParam(required = false, defaultValue = DiceConsts.PAGE_SIZE) Integer limit,
+                             @RequestParam(required = false) String cursor) {
+        // 缓存key使用限制后的每页数量
+        limit = PageCursor.limit(limit);
+        if (null != cursor) {
+            return RestResponse.ok(articleService.getFrontArticles(cursor, limit));
+        }
         IPage<Article> articles = articleService.getFrontArticles(page, limit);
         return RestResponse.ok(new Pagination<Article>(articles));
     }
@@ -67,43 +87,23 @@ public class FrontController {
      * @return {@see Article}
      */
     @GetMapping("article/{id}")
+    @HttpCache(value = "article", tags = {"article:{id}", CacheTagKeys.ARTICLES})
     public ApiResult<Article> article(@PathVariable Integer id,
                                 @RequestParam(required = false,defaultValue = "") String token) {
         Article article = articleService.getFrontArticle(id,token);
         if (null == article) {
             return ApiResult.fail(ApiCode.NOT_FOUND, null);
         }
-        this.updateHits(article.getId(), article.getHits());
         return ApiResult.ok(article);
     }
 
-    /**
-     * 点击量添加
-     *
-     * @param articleId 文章id
-     * @param hits      当前点击量
-     */
-    private void updateHits(Integer articleId, Integer hits) {
-        Integer cHits = cacheUtil.getCacheValue(DiceConsts.CACHE_ARTICLE_HITS, articleId, Integer.class);
-        cHits = null == cHits ? 1 : cHits + 1;
-        if (cHits >= DiceConsts.CACHE_ARTICLE_HITS_SAVE) {
-            Article temp = new Article();
-            temp.setId(articleId);
-            temp.setHits(hits + cHits);
-            articleService.updateArticle(temp);
-            cacheUtil.putCacheValue(DiceConsts.CACHE_ARTICLE_HITS, articleId, 0);
-        } else {
-            cacheUtil.putCacheValue(DiceConsts.CACHE_ARTICLE_HITS, articleId, cHits);
-        }
-    }
-
-
     /**
      * 标签页
      *
      * @return {@see List<MetaDto>}
      */
     @GetMapping("tag")
+    @HttpCache(value = "tag", tags = CacheTagKeys.ARTICLE_LIST)
     public RestResponse tag() {
         List<MetaDto> metaDtos = metaService.getPublishMetaDtos(Types.TAG);
         return RestResponse.ok(metaDtos);
@@ -115,6 +115,7 @@ public class FrontController {
      * @return {@see List<MetaDto>}
      */
     @GetMapping("category")
+    @HttpCache(value = "category", tags = CacheTagKeys.ARTICLE_LIST)
     public RestResponse category() {
         List<MetaDto> metaDtos = metaService.getPublishMetaDtos(Types.CATEGORY);
         return RestResponse.ok(metaDtos);
@@ -126,17 +127,35 @@ public class FrontController {
      * @return {@see List<Archive>}
      */
     @GetMapping("archive")
+    @HttpCache(value = "archive", tags = CacheTagKeys.ARTICLE_LIST)
     public RestResponse archive() {
         List<Archive> archives = articleService.getArchives();
         return RestResponse.ok(archives);
     }
 
+    /**
+     * 搜索已发布的文章和页面
+     *
+     * @param keyword 关键字
+     * @param page    第几页
+     * @param limit   每页数量
+     * @return {@see Pagination<SearchHit>}
+     */
+    @GetMapping("search")
+    public RestResponse search(@RequestParam String keyword,
+                               @RequestParam(required = false, defaultValue = "1") Integer page,
+                               @RequestParam(required = false, defaultValue = DiceConsts.PAGE_SIZE) Integer limit) {
+        IPage<SearchHit> hits = searchService.search(keyword, page, limit);
+        return RestResponse.ok(new Pagination<SearchHit>(hits));
+    }
+
     /**
      * 获取自定义页面的列表,根据权重排序
      *
      * @return {@see List<NoteInfo>}
      */
     @GetMapping("page")
+    @HttpCache(value = "pages", tags = CacheTagKeys.PAGE_LIST)
     public RestResponse pageList() {
         List<Article> pages = articleService.getFrontPageList();
         return RestResponse.ok(pages);
@@ -149,6 +168,7 @@ public class FrontController {
      * @return {@see Article}
      */
     @GetMapping("page/{id}")
+    @HttpCache(value = "page", tags = {"article:{id}", CacheTagKeys.ARTICLES})
     public ApiResult<Article> page(@PathVariable Integer id) {
         Article page = articleService.getFrontPage(id);
         if (null == page) {
@@ -163,15 +183,43 @@ public class FrontController {
      * @param articleId 文章id
      * @param page      第几页
      * @param limit     每页数量
+     * @param cursor    游标,不为null时使用游标分页(第一页传空字符串),返回{@see CursorPaging<Comment>}
      * @return {@see Pagination<Comment>}
      */
     @GetMapping("comment")
+    @HttpCache(value = "comments", tags = "comments:{articleId}")
     public RestResponse getArticleComment(@RequestParam Integer articleId, @RequestParam(required = false, defaultValue = "1") Integer page,
-                                          @RequestParam(required = false, defaultValue = DiceConsts.PAGE_SIZE) Integer limit) {
+                                          @RequestParam(required = false, defaultValue = DiceConsts.PAGE_SIZE) Integer limit,
+                                          @RequestParam(required = false) String cursor) {
+        limit = PageCursor.limit(limit);
+        if (null != cursor) {
+            return RestResponse.ok(commentService.getCommentsByArticleId(cursor, limit, articleId));
+        }
         IPage<Comment> comments = commentService.getCommentsByArticleId(page, limit, articleId);
         return RestResponse.ok(new Pagination<Comment>(comments));
     }
 
+    /**
+     * 获取文章的评论树,按根评论分页
+     *
+     * @param articleId 文章id
+     * @param page      第几页
+     * @param limit     每页根评论数量
+     * @return {@see Pagination<CommentNode>}
+     */
+    @GetMapping("comment/thread")
+    @HttpCache(value = "comment-thread", tags = "comments:{articleId}")
+    public RestResponse getArticleCommentThread(@RequestParam Integer articleId, @RequestParam(required = false, defaultValue = "1") Integer page,
+                                                @RequestParam(required = false, defaultValue = DiceConsts.PAGE_SIZE) Integer limit) {
+        limit = PageCursor.limit(limit);
+        page = null == page ? 1 : Math.max(1, page);
+        List<CommentNode> roots = commentService.getCommentTree(articleId);
+        Page<CommentNode> threads = new Page<>(page, limit, roots.size());
+        int from = (int) Math.min(threads.offset(), roots.size());
+        threads.setRecords(roots.subList(from, Math.min(from + limit, roots.size())));
+        return RestResponse.ok(new Pagination<CommentNode>(threads));
+    }
+
     /**
      * 发表评论
      *
@@ -181,10 +229,11 @@ public class FrontController {
      * @param name      评论用户名
      * @param email     评论用户email
      * @param website   评论用户网址
-     * @return {@see RestResponse.ok()}
+     * @return 异步写入时返回202,队列已满返回503
      */
     @PostMapping("comment")
-    public RestResponse postComment(@RequestParam Integer articleId, @RequestParam(required = false) Integer pId,
+    @RateLimit(value = "comment", capacity = 5, rate = 0.1)
+    public ResponseEntity<RestResponse> postComment(@RequestParam Integer articleId, @RequestParam(required = false) Integer pId,
                                     @RequestParam String content, @RequestParam String name,
                                     @RequestParam(required = false) String email, @RequestParam(required = false) String website) {
         Comment comments = new Comment();
@@ -196,15 +245,14 @@ public class FrontController {
         comments.setWebsite(website);
         comments.setIp(DiceUtil.getIp());
         comments.setAgent(DiceUtil.getAgent());
-        commentService.save(comments);
-
-        //发送邮件提醒
-        CommentDto commentDetail = commentService.getCommentDetail(comments.getId());
-        emailService.sendEmailToAdmin(commentDetail);
-        if (null != commentDetail.getPComment() && !StringUtils.isEmpty(commentDetail.getPComment().getEmail())) {
-            emailService.sendEmailToUser(commentDetail, commentDetail.getPComment().getEmail());
+        if (commentIngestProperties.isEnable()) {
+            if (!commentIngestService.submit(comments)) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(RestResponse.fail("评论太多了,请稍后再试"));
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(RestResponse.ok());
         }
-        return RestResponse.ok();
+        commentService.save(comments);
+        return ResponseEntity.ok(RestResponse.ok());
     }
 
     /**
@@ -215,6 +263,7 @@ public class FrontController {
      * @return {@see RestResponse.ok()}
      */
     @PostMapping("comment/{commentId}/assess")
+    @RateLimit(value = "assess", capacity = 20, rate = 1)
     public RestResponse assessComment(@PathVariable Integer commentId, @RequestParam String assess) {
         commentService.assessComment(commentId, assess);
         return RestResponse.ok();
@@ -226,6 +275,7 @@ public class FrontController {
      * @return Map
      */
     @GetMapping("option")
+    @HttpCache(value = "option", tags = CacheTagKeys.OPTIONS)
     public RestResponse getOption() {
         Map<String, String> map = optionService.getFrontOptionMap();
         return RestResponse.ok(map);
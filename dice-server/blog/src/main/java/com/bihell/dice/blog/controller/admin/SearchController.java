@@ -0,0 +1,32 @@
+package com.bihell.dice.blog.controller.admin;
+
+import com.bihell.dice.blog.service.search.SearchService;
+import com.bihell.dice.framework.common.api.ApiResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 全文检索管理 Controller
+ *
+ * @author bihell
+ */
+@RestController
+@RequestMapping("/v1/api/admin/search")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class SearchController {
+
+    private final SearchService searchService;
+
+    /**
+     * 从数据库重建全文索引
+     *
+     * @return 索引的数量
+     */
+    @PostMapping("/rebuild")
+    public ApiResult<Integer> rebuild() {
+        return ApiResult.ok(searchService.rebuild());
+    }
+}
@@ -8,6 +8,7 @@ import com.bihell.dice.framework.log.annotation.OperationLog;
 import com.bihell.dice.framework.log.enums.OperationLogType;
 import com.bihell.dice.framework.util.UUIDUtil;
 import com.bihell.dice.framework.util.VerificationCode;
+import com.bihell.dice.framework.ratelimit.annotation.RateLimit;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -48,6 +49,7 @@ public class VerificationCodeController {
      * 获取验证码
      */
     @GetMapping("/getImage")
+    @RateLimit(value = "captcha", capacity = 10, rate = 0.5)
     @OperationLog(name = "获取验证码", type = OperationLogType.OTHER)
     @ApiOperation(value = "获取验证码", response = ApiResult.class)
     public void getImage(HttpServletResponse response) throws Exception {
@@ -70,6 +72,7 @@ public class VerificationCodeController {
      * 获取图片Base64验证码
      */
     @GetMapping("/getBase64Image")
+    @RateLimit(value = "captcha", capacity = 10, rate = 0.5)
     @ResponseBody
     @OperationLog(name = "获取图片Base64验证码", type = OperationLogType.OTHER)
     @ApiOperation(value = "获取图片Base64验证码", response = ApiResult.class)
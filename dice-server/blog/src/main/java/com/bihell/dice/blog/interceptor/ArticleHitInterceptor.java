@@ -0,0 +1,66 @@
+package com.bihell.dice.blog.interceptor;
+
+import com.bihell.dice.blog.service.blog.ArticleHitService;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 文章点击量拦截器
+ * <p>
+ * 在 HttpCacheInterceptor 之前记录点击量,返回304或命中响应体缓存的请求也会计数。
+ * 带预览token的请求不计数,不存在或未发布的文章由 {@link ArticleHitService} 忽略。
+ * 由快照过滤器直接返回的文章请求不经过拦截器,通过 {@link #snapshotServed(String)} 计数
+ *
+ * @author bihell
+ */
+public class ArticleHitInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String ID_VARIABLE = "id";
+
+    private static final String TOKEN_PARAM = "token";
+
+    /**
+     * 文章快照路径,如 article/1
+     */
+    private static final Pattern ARTICLE_SNAPSHOT = Pattern.compile("article/(\\d+)");
+
+    @Autowired
+    private ArticleHitService articleHitService;
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!HttpMethod.GET.matches(request.getMethod()) || StringUtils.isNotEmpty(request.getParameter(TOKEN_PARAM))) {
+            return true;
+        }
+        Map<String, String> uriVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        int id = null == uriVariables ? 0 : NumberUtils.toInt(uriVariables.get(ID_VARIABLE));
+        if (id > 0) {
+            articleHitService.hit(id);
+        }
+        return true;
+    }
+
+    /**
+     * 快照过滤器返回快照后记录点击量,快照过滤器不处理带token的请求
+     *
+     * @param path 去掉前缀的接口路径
+     */
+    public void snapshotServed(String path) {
+        Matcher matcher = ARTICLE_SNAPSHOT.matcher(path);
+        int id = matcher.matches() ? NumberUtils.toInt(matcher.group(1)) : 0;
+        if (id > 0) {
+            articleHitService.hit(id);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.bihell.dice.blog.mapper.blogs;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.bihell.dice.blog.enums.PostStatusEnum;
 import com.bihell.dice.blog.model.blog.Article;
 import com.bihell.dice.blog.model.dto.ArticleInfoDto;
 import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.DiceConsts;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Article Mapper
@@ -18,6 +23,58 @@ import java.util.List;
  */
 public interface ArticleMapper extends BaseMapper<Article> {
 
+    /**
+     * 在数据库中截取文章预览,与 DiceUtil.getSummary 的规则一致
+     */
+    String SUMMARY_COLUMN = "SUBSTRING(content, 1, IF(LOCATE('" + DiceConsts.PREVIEW_FLAG + "', content) > 0, " +
+            "LOCATE('" + DiceConsts.PREVIEW_FLAG + "', content) - 1, " + DiceConsts.MAX_PREVIEW_COUNT + "))";
+
+    /**
+     * 前端文章列表查询的字段,不包含文章全文
+     * <p>
+     * 渲染结果未过期时content为空,否则content为数据库中截取的预览markdown
+     */
+    String FRONT_SUMMARY_COLUMNS = "id, title, hits, tags, category, priority, status, type, allow_comment, comment_count, " +
+            "create_time, update_time, creator, modifier, summary_html, render_version, " +
+            "IF(render_version >= #{renderVersion}, NULL, " + SUMMARY_COLUMN + ") AS content";
+
+    /**
+     * 前端文章列表的查询条件
+     */
+    String FRONT_SUMMARY_CONDITION = "deleted = 0 AND status = '" + PostStatusEnum.Constants.PUBLISHED_VALUE + "' " +
+            "AND type = '" + Types.POST + "'";
+
+    /**
+     * 分页查询前端文章列表,不查询文章全文
+     *
+     * @param page          分页参数
+     * @param renderVersion 当前渲染版本
+     * @return IPage<Article>
+     */
+    @Select("SELECT " + FRONT_SUMMARY_COLUMNS + " FROM dice.article WHERE " + FRONT_SUMMARY_CONDITION +
+            " ORDER BY priority DESC, create_time DESC")
+    IPage<Article> selectFrontSummaryPage(IPage<Article> page, @Param("renderVersion") Integer renderVersion);
+
+    /**
+     * 游标查询前端文章列表,返回排在(priority, createTime, id)之后的文章,不查询文章全文
+     *
+     * @param renderVersion 当前渲染版本
+     * @param priority      上一页最后一篇文章的优先级,为空时查询第一页
+     * @param createTime    上一页最后一篇文章的创建时间
+     * @param id            上一页最后一篇文章的id
+     * @param limit         查询数量
+     * @return List<Article>
+     */
+    @Select("SELECT " + FRONT_SUMMARY_COLUMNS + " FROM dice.article WHERE " + FRONT_SUMMARY_CONDITION +
+            " AND (#{priority} IS NULL OR priority < #{priority} OR (priority = #{priority} AND (create_time < #{createTime}" +
+            " OR (create_time = #{createTime} AND id < #{id}))))" +
+            " ORDER BY priority DESC, create_time DESC, id DESC LIMIT #{limit}")
+    List<Article> selectFrontSummaryAfter(@Param("renderVersion") Integer renderVersion,
+                                          @Param("priority") Integer priority,
+                                          @Param("createTime") LocalDateTime createTime,
+                                          @Param("id") Integer id,
+                                          @Param("limit") Integer limit);
+
     /**
      * 根据metaId获取关联的文章
      *
@@ -28,6 +85,23 @@ public interface ArticleMapper extends BaseMapper<Article> {
             "AND dice.article.type = '" + Types.POST + "' order by create_time desc")
     List<Article> selectByMeta(@Param("metaId") Integer metaId);
 
+    /**
+     * 所有已发布文章的id
+     *
+     * @return 文章id
+     */
+    @Select("SELECT id FROM dice.article WHERE " + FRONT_SUMMARY_CONDITION + " ORDER BY id")
+    List<Integer> selectPublishedIds();
+
+    /**
+     * 点击量最高的已发布文章id
+     *
+     * @param limit 数量
+     * @return 文章id
+     */
+    @Select("SELECT id FROM dice.article WHERE " + FRONT_SUMMARY_CONDITION + " ORDER BY hits DESC LIMIT #{limit}")
+    List<Integer> selectTopHitIds(@Param("limit") Integer limit);
+
     /**
      * 根据metaId获取关联文章的数量
      *
@@ -40,34 +114,79 @@ public interface ArticleMapper extends BaseMapper<Article> {
     Integer selectCountByMeta(@Param("metaId") Integer metaId);
 
     /**
-     * 根据metaId获取关联的已发布文章
+     * 根据metaId获取关联的已发布代码段
      *
      * @param metaId 属性id
      * @return List<Article>
      */
     @Select("SELECT * FROM dice.article WHERE id " +
-            "IN (SELECT a_id FROM dice.middle WHERE m_id = #{metaId}) " +
-            "AND dice.article.status = '" + PostStatusEnum.Constants.PUBLISHED_VALUE + "' AND dice.article.type = '" + Types.POST + "' order by create_time desc")
-    List<ArticleInfoDto> selectPublishByMeta(@Param("metaId") Integer metaId);
+            "IN (SELECT a_id FROM dice.middle WHERE m_id = #{metaId}) order by create_time desc")
+    List<ArticleInfoDto> selectSnippetByMeta(@Param("metaId") Integer metaId);
 
     /**
-     * 根据metaId获取关联的已发布代码段
+     * 获取渲染结果需要更新的文章(渲染版本为空或低于当前版本)
      *
-     * @param metaId 属性id
+     * @param renderVersion 当前渲染版本
+     * @param limit         每批数量
      * @return List<Article>
      */
-    @Select("SELECT * FROM dice.article WHERE id " +
-            "IN (SELECT a_id FROM dice.middle WHERE m_id = #{metaId}) order by create_time desc")
-    List<ArticleInfoDto> selectSnippetByMeta(@Param("metaId") Integer metaId);
+    @Select("SELECT id, content FROM dice.article WHERE deleted = 0 " +
+            "AND (render_version IS NULL OR render_version < #{renderVersion}) ORDER BY id LIMIT #{limit}")
+    List<Article> selectRenderStale(@Param("renderVersion") Integer renderVersion, @Param("limit") Integer limit);
 
     /**
-     * 根据metaId获取关联已发布文章的数量
+     * 只更新渲染结果,不修改文章的更新时间
      *
-     * @param metaId 属性id
-     * @return Integer
+     * @param article 包含id和渲染结果的文章
+     * @return 更新行数
      */
-    @Select("SELECT count(*) FROM dice.article WHERE id " +
-            "IN (SELECT a_id FROM dice.middle WHERE m_id = #{metaId}) " +
-            "AND dice.article.status = '" + PostStatusEnum.Constants.PUBLISHED_VALUE + "' AND dice.article.type = '" + Types.POST + "'")
-    Integer selectPublishCountByMeta(@Param("metaId") Integer metaId);
+    @Update("UPDATE dice.article SET content_html = #{contentHtml}, summary_html = #{summaryHtml}, " +
+            "render_version = #{renderVersion}, update_time = update_time WHERE id = #{id}")
+    int updateRendered(Article article);
+
+    /**
+     * 更新文章的属性字段(tags或category),不修改文章的更新时间
+     *
+     * @param column 属性字段名,只能是 tags 或 category
+     * @param value  逗号分隔的属性名
+     * @param id     文章id
+     * @return 更新的行数
+     */
+    @Update("UPDATE dice.article SET ${column} = #{value}, update_time = update_time WHERE id = #{id}")
+    int updateMetaColumn(@Param("column") String column, @Param("value") String value, @Param("id") Integer id);
+
+    /**
+     * 批量增加文章点击量,不更新修改时间
+     *
+     * @param hits 文章id -> 增加的点击量
+     * @return 更新的行数
+     */
+    @Update("<script>UPDATE dice.article SET hits = IFNULL(hits, 0) + CASE id " +
+            "<foreach collection='hits' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END, update_time = update_time WHERE id IN " +
+            "<foreach collection='hits' index='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int increaseHits(@Param("hits") Map<Integer, Long> hits);
+
+    /**
+     * 原子增减文章评论数,不更新修改时间
+     *
+     * @param id    文章id
+     * @param delta 增加的评论数,减少时为负数
+     * @return 更新的行数
+     */
+    @Update("UPDATE dice.article SET comment_count = GREATEST(comment_count + #{delta}, 0), " +
+            "update_time = update_time WHERE id = #{id}")
+    int increaseCommentCount(@Param("id") Integer id, @Param("delta") int delta);
+
+    /**
+     * 批量增加文章评论数,不更新修改时间
+     *
+     * @param counts 文章id -> 增加的评论数
+     * @return 更新的行数
+     */
+    @Update("<script>UPDATE dice.article SET comment_count = comment_count + CASE id " +
+            "<foreach collection='counts' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END, update_time = update_time WHERE id IN " +
+            "<foreach collection='counts' index='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int increaseCommentCounts(@Param("counts") Map<Integer, Long> counts);
 }
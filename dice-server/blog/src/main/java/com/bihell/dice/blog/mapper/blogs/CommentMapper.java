@@ -2,6 +2,13 @@ package com.bihell.dice.blog.mapper.blogs;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.bihell.dice.blog.model.blog.Comment;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -11,4 +18,71 @@ import com.bihell.dice.blog.model.blog.Comment;
  * @since 2018/1/19 16:49
  */
 public interface CommentMapper extends BaseMapper<Comment> {
+
+    /**
+     * 获取渲染结果需要更新的评论(渲染版本为空或低于当前版本)
+     *
+     * @param renderVersion 当前渲染版本
+     * @param limit         每批数量
+     * @return List<Comment>
+     */
+    @Select("SELECT id, content FROM dice.comment " +
+            "WHERE render_version IS NULL OR render_version < #{renderVersion} ORDER BY id LIMIT #{limit}")
+    List<Comment> selectRenderStale(@Param("renderVersion") Integer renderVersion, @Param("limit") Integer limit);
+
+    /**
+     * 只更新评论的渲染结果
+     *
+     * @param comment 包含id和渲染结果的评论
+     * @return 更新行数
+     */
+    @Update("UPDATE dice.comment SET content_html = #{contentHtml}, render_version = #{renderVersion} WHERE id = #{id}")
+    int updateRendered(Comment comment);
+
+    /**
+     * 批量增加评论的顶和踩,两个参数的key相同
+     *
+     * @param agree    评论id -> 增加的顶
+     * @param disagree 评论id -> 增加的踩
+     * @return 更新的行数
+     */
+    @Update("<script>UPDATE dice.comment SET agree = agree + CASE id " +
+            "<foreach collection='agree' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END, disagree = disagree + CASE id " +
+            "<foreach collection='disagree' index='id' item='delta'>WHEN #{id} THEN #{delta} </foreach>" +
+            "END WHERE id IN " +
+            "<foreach collection='agree' index='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int increaseAssess(@Param("agree") Map<Integer, Long> agree, @Param("disagree") Map<Integer, Long> disagree);
+
+    /**
+     * 把正常状态的评论标记为删除
+     *
+     * @param id 评论id
+     * @return 更新行数,评论不存在或已删除时为0
+     */
+    @Update("UPDATE dice.comment SET status = -1 WHERE id = #{id} AND status = 0")
+    int markDeleted(@Param("id") Integer id);
+
+    /**
+     * 获取文章下所有正常状态的评论,按id排序
+     *
+     * @param articleId 文章id
+     * @return List<Comment>
+     */
+    @Select("SELECT id, p_id, name, website, content, content_html, render_version, agree, disagree, create_time " +
+            "FROM dice.comment WHERE article_id = #{articleId} AND status = 0 ORDER BY id")
+    List<Comment> selectThread(@Param("articleId") Integer articleId);
+
+    /**
+     * 批量插入评论
+     *
+     * @param comments 已渲染的评论
+     * @return 插入的行数
+     */
+    @Insert("<script>INSERT INTO dice.comment (article_id, p_id, content, content_html, render_version, " +
+            "name, email, website, ip, agent, create_time) VALUES " +
+            "<foreach collection='comments' item='c' separator=','>(#{c.articleId}, #{c.pId}, #{c.content}, " +
+            "#{c.contentHtml}, #{c.renderVersion}, #{c.name}, #{c.email}, #{c.website}, #{c.ip}, #{c.agent}, " +
+            "#{c.createTime})</foreach></script>")
+    int insertBatch(@Param("comments") List<Comment> comments);
 }
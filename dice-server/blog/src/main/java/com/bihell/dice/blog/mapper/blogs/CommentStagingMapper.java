@@ -0,0 +1,67 @@
+package com.bihell.dice.blog.mapper.blogs;
+
+import com.bihell.dice.blog.model.blog.Comment;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * 暂存评论 Mapper,评论队列已满时写入,由后台任务转存到 comment 表
+ *
+ * @author bihell
+ */
+public interface CommentStagingMapper {
+
+    /**
+     * 暂存一条评论
+     *
+     * @param comment 未渲染的评论
+     * @return 插入的行数
+     */
+    @Insert("INSERT INTO dice.comment_staging (article_id, p_id, content, name, email, website, ip, agent, create_time) " +
+            "VALUES (#{articleId}, #{pId}, #{content}, #{name}, #{email}, #{website}, #{ip}, #{agent}, #{createTime})")
+    int insert(Comment comment);
+
+    /**
+     * 按暂存顺序获取评论
+     *
+     * @param limit 数量
+     * @return List<Comment>,id为暂存表的id
+     */
+    @Select("SELECT id, article_id, p_id, content, name, email, website, ip, agent, create_time " +
+            "FROM dice.comment_staging ORDER BY id LIMIT #{limit}")
+    List<Comment> selectBatch(@Param("limit") Integer limit);
+
+    /**
+     * 删除已转存的评论
+     *
+     * @param ids 暂存表的id
+     * @return 删除的行数
+     */
+    @Delete("<script>DELETE FROM dice.comment_staging WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deleteByIds(@Param("ids") List<Integer> ids);
+
+    /**
+     * 增加转存失败次数
+     *
+     * @param id 暂存表的id
+     * @return 更新的行数
+     */
+    @Update("UPDATE dice.comment_staging SET attempts = attempts + 1 WHERE id = #{id}")
+    int increaseAttempts(@Param("id") Integer id);
+
+    /**
+     * 删除转存失败次数达到上限的评论
+     *
+     * @param id          暂存表的id
+     * @param maxAttempts 最多尝试次数
+     * @return 删除的行数
+     */
+    @Delete("DELETE FROM dice.comment_staging WHERE id = #{id} AND attempts >= #{maxAttempts}")
+    int deleteExhausted(@Param("id") Integer id, @Param("maxAttempts") Integer maxAttempts);
+}
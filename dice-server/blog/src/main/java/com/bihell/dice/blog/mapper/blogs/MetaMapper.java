@@ -1,11 +1,15 @@
 package com.bihell.dice.blog.mapper.blogs;
 
+import com.bihell.dice.blog.enums.PostStatusEnum;
+import com.bihell.dice.blog.model.dto.MetaArticleDto;
 import com.bihell.dice.blog.model.dto.MetaDto;
+import com.bihell.dice.blog.utils.Types;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.bihell.dice.blog.model.blog.Meta;
 import com.bihell.dice.blog.vo.MetaQueryVO;
 import org.apache.ibatis.annotations.*;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -40,28 +44,39 @@ public interface MetaMapper extends BaseMapper<Meta> {
      * @param type 标签类型
      * @param title 文章标题（目前只有代码段功能使用）
      * @param snippetFileContent 代码段文件内容
+     * @param snippetIds 全文检索匹配的代码段id,不为null时代替snippetFileContent的like查询
      * @return  List<MetaDto>
      */
     @SelectProvider(type = MetaSql.class, method = "selectMetaDtos")
     List<MetaDto> selectMetaDtos(@Param("type") String type,
                                  @Param("title") String title,
-                                 @Param("snippetFileContent") String snippetFileContent);
+                                 @Param("snippetFileContent") String snippetFileContent,
+                                 @Param("snippetIds") List<Integer> snippetIds);
 
     /**
-     * 获取属性以及属性下的已发布文章 todo 修改 @One xxx这种方式
+     * 获取属性以及属性下的已发布文章,每个属性和文章的关联为一行,按属性id和文章创建时间倒序排列
      *
      * @param type 属性类型
-     * @return List<MetaDto>
+     * @return List<MetaArticleDto>
      */
-    @Select("select * from dice.meta meta where meta.type = #{type}")
-    @Results({
-            @Result(id = true, column = "id", property = "id"),
-            @Result(column = "name", property = "name"),
-            @Result(column = "type", property = "type"),
-            @Result(column = "id", property = "count",
-                    one = @One(select = "com.bihell.dice.blog.mapper.blogs.ArticleMapper.selectPublishCountByMeta")),
-            @Result(column = "id", property = "articles",
-                    many = @Many(select = "com.bihell.dice.blog.mapper.blogs.ArticleMapper.selectPublishByMeta"))
-    })
-    List<MetaDto> selectPublishMetaDtos(@Param("type") String type);
+    @Select("SELECT m.id AS meta_id, m.name AS meta_name, m.type AS meta_type, " +
+            "a.id AS article_id, a.title, a.tags, a.category " +
+            "FROM dice.meta m " +
+            "LEFT JOIN dice.middle mi ON mi.m_id = m.id " +
+            "LEFT JOIN dice.article a ON a.id = mi.a_id AND a.deleted = 0 " +
+            "AND a.status = '" + PostStatusEnum.Constants.PUBLISHED_VALUE + "' AND a.type = '" + Types.POST + "' " +
+            "WHERE m.type = #{type} " +
+            "ORDER BY m.id, a.create_time DESC")
+    List<MetaArticleDto> selectPublishMetaArticles(@Param("type") String type);
+
+    /**
+     * 批量添加属性,(type, name) 已存在的忽略
+     *
+     * @param type  属性类型
+     * @param names 属性名
+     * @return 插入的行数
+     */
+    @Insert("<script>INSERT IGNORE INTO dice.meta (name, type) VALUES " +
+            "<foreach collection='names' item='name' separator=','>(#{name}, #{type})</foreach></script>")
+    int insertBatch(@Param("type") String type, @Param("names") Collection<String> names);
 }
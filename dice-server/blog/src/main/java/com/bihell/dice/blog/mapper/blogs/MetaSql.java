@@ -6,18 +6,28 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 /**
  * @author haseochen
  */
 public class MetaSql {
     private static final Logger log = LoggerFactory.getLogger(MetaSql.class);
 
-    public String selectMetaDtos(@Param("type") String type, @Param("title") String title, @Param("snippetFileContent") String snippetFileContent) {
+    public String selectMetaDtos(@Param("type") String type, @Param("title") String title,
+                                 @Param("snippetFileContent") String snippetFileContent,
+                                 @Param("snippetIds") List<Integer> snippetIds) {
         StringBuilder sql = new StringBuilder(
                 "select t1.id, t1.name, t1.type, count(t3.id) as count\n" +
                         "from dice.meta t1\n" +
                         "left join dice.middle t2 on t2.m_id = t1.id ");
-        if (null != snippetFileContent && !StringUtils.isEmpty(snippetFileContent)) {
+        if (null != snippetIds) {
+            // 全文检索匹配的代码段
+            sql.append(" join (select id,title,type,status from dice.article where deleted = 0 and id in (");
+            sql.append(snippetIds.isEmpty() ? "-1" : snippetIds.stream().map(String::valueOf).collect(Collectors.joining(",")));
+            sql.append(")) t3 on t3.id = t2.a_id ");
+        } else if (null != snippetFileContent && !StringUtils.isEmpty(snippetFileContent)) {
             sql.append(" join (select id,title,type,status from dice.article where deleted = 0 and id in (select snippet_id from dice.snippet_file where content like CONCAT('%',#{snippetFileContent},'%'))) t3 on t3.id = t2.a_id ");
         } else {
             sql.append(" left join dice.article t3 on t3.id = t2.a_id and t3.deleted = 0");
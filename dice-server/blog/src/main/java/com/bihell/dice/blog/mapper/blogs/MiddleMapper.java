@@ -2,6 +2,12 @@ package com.bihell.dice.blog.mapper.blogs;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.bihell.dice.blog.model.blog.Middle;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Middle Mapper
@@ -10,4 +16,27 @@ import com.bihell.dice.blog.model.blog.Middle;
  * @since 2017/9/18 15:24
  */
 public interface MiddleMapper extends BaseMapper<Middle> {
+
+    /**
+     * 分批获取属性关联的文章id
+     *
+     * @param metaId  属性id
+     * @param afterId 上一批最后的文章id,第一批传0
+     * @param limit   每批数量
+     * @return List<Integer>
+     */
+    @Select("SELECT DISTINCT a_id FROM dice.middle WHERE m_id = #{metaId} AND a_id > #{afterId} ORDER BY a_id LIMIT #{limit}")
+    List<Integer> selectArticleIdsByMeta(@Param("metaId") Integer metaId, @Param("afterId") Integer afterId,
+                                         @Param("limit") Integer limit);
+
+    /**
+     * 批量添加文章和属性的关联
+     *
+     * @param articleId 文章id
+     * @param metaIds   属性id
+     * @return 插入的行数
+     */
+    @Insert("<script>INSERT INTO dice.middle (a_id, m_id) VALUES " +
+            "<foreach collection='metaIds' item='metaId' separator=','>(#{articleId}, #{metaId})</foreach></script>")
+    int insertBatch(@Param("articleId") Integer articleId, @Param("metaIds") Collection<Integer> metaIds);
 }
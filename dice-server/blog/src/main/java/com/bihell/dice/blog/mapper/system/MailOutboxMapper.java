@@ -0,0 +1,60 @@
+package com.bihell.dice.blog.mapper.system;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.bihell.dice.blog.model.system.MailOutbox;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 邮件发件箱 Mapper
+ *
+ * @author bihell
+ */
+public interface MailOutboxMapper extends BaseMapper<MailOutbox> {
+
+    /**
+     * 获取到期待发送的邮件
+     *
+     * @param now   当前时间
+     * @param limit 数量
+     * @return List<MailOutbox>
+     */
+    @Select("SELECT * FROM dice.mail_outbox WHERE status = 0 AND next_attempt_time <= #{now} " +
+            "ORDER BY next_attempt_time, id LIMIT #{limit}")
+    List<MailOutbox> selectPending(@Param("now") LocalDateTime now, @Param("limit") Integer limit);
+
+    /**
+     * 标记一批邮件发送成功
+     *
+     * @param ids      邮件id
+     * @param sendTime 发送时间
+     * @return 更新的行数
+     */
+    @Update("<script>UPDATE dice.mail_outbox SET status = 1, attempts = attempts + 1, last_error = NULL, send_time = #{sendTime} " +
+            "WHERE id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int markSent(@Param("ids") List<Integer> ids, @Param("sendTime") LocalDateTime sendTime);
+
+    /**
+     * 按写入顺序获取等待合并到摘要的评论提醒
+     *
+     * @param limit 数量
+     * @return List<MailOutbox>
+     */
+    @Select("SELECT * FROM dice.mail_outbox WHERE status = 2 ORDER BY id LIMIT #{limit}")
+    List<MailOutbox> selectDigest(@Param("limit") Integer limit);
+
+    /**
+     * 删除已合并的评论提醒
+     *
+     * @param ids 邮件id
+     * @return 删除的行数
+     */
+    @Delete("<script>DELETE FROM dice.mail_outbox WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deleteByIds(@Param("ids") List<Integer> ids);
+}
@@ -8,6 +8,7 @@ import com.baomidou.mybatisplus.annotation.TableLogic;
 import com.baomidou.mybatisplus.extension.activerecord.Model;
 import com.bihell.dice.blog.enums.PostStatusEnum;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
@@ -38,6 +39,21 @@ public class Article extends Model<Article> {
     @Size(max = 200000,message = "文章内容字数不能超过200000")
     @NotNull(message = "文章内容不能为空")
     private String content;
+    /**
+     * 保存时渲染好的内容html
+     */
+    @JsonIgnore
+    private String contentHtml;
+    /**
+     * 保存时渲染好的摘要html
+     */
+    @JsonIgnore
+    private String summaryHtml;
+    /**
+     * 渲染时的markdown渲染版本
+     */
+    @JsonIgnore
+    private Integer renderVersion;
     private Integer hits;
     private String tags;
     private String category;
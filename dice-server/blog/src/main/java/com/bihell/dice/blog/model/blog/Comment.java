@@ -2,6 +2,7 @@ package com.bihell.dice.blog.model.blog;
 
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.extension.activerecord.Model;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
@@ -39,6 +40,18 @@ public class Comment extends Model<Comment> {
      */
     private String content;
 
+    /**
+     * 保存时渲染好的评论内容html
+     */
+    @JsonIgnore
+    private String contentHtml;
+
+    /**
+     * 渲染时的markdown渲染版本
+     */
+    @JsonIgnore
+    private Integer renderVersion;
+
     /**
      * 昵称
      */
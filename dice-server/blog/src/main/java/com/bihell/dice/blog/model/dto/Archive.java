@@ -1,9 +1,10 @@
 package com.bihell.dice.blog.model.dto;
 
-import com.bihell.dice.blog.model.blog.Article;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -15,7 +16,9 @@ import java.util.List;
  */
 @Data
 @Accessors(chain = true)
-public class Archive {
+public class Archive implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String dateStr;
 
@@ -23,5 +26,12 @@ public class Archive {
 
     private Integer count;
 
-    private List<Article> articles;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ArchiveArticle> articles;
+
+    /**
+     * 按月分组的统计,只包含月份和数量
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Archive> months;
 }
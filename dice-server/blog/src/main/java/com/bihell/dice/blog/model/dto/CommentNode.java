@@ -0,0 +1,47 @@
+package com.bihell.dice.blog.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 评论树节点 Dto
+ *
+ * @author bihell
+ */
+@Data
+@Accessors(chain = true)
+public class CommentNode implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Integer id;
+
+    private Integer pId;
+
+    private String name;
+
+    private String website;
+
+    /**
+     * 渲染后的评论内容html
+     */
+    private String content;
+
+    private Integer agree;
+
+    private Integer disagree;
+
+    private LocalDateTime createTime;
+
+    /**
+     * 回复,按时间排序
+     */
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<CommentNode> children = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package com.bihell.dice.blog.model.dto;
+
+import lombok.Data;
+
+/**
+ * 属性和文章关联查询的结果行,用于在内存中组装 MetaDto
+ *
+ * @author bihell
+ */
+@Data
+public class MetaArticleDto {
+
+    private Integer metaId;
+
+    private String metaName;
+
+    private String metaType;
+
+    /**
+     * 属性下没有已发布文章时为空
+     */
+    private Integer articleId;
+
+    private String title;
+
+    private String tags;
+
+    private String category;
+}
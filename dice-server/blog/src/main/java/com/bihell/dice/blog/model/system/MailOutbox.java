@@ -0,0 +1,70 @@
+package com.bihell.dice.blog.model.system;
+
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.extension.activerecord.Model;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+/**
+ * 邮件发件箱 Model
+ *
+ * @author bihell
+ */
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+@Data
+@Accessors(chain = true)
+public class MailOutbox extends Model<MailOutbox> {
+
+    @TableId
+    private Integer id;
+
+    /**
+     * 收件人
+     */
+    private String recipient;
+
+    /**
+     * 邮件标题
+     */
+    private String subject;
+
+    /**
+     * 邮件内容(html)
+     */
+    private String content;
+
+    /**
+     * 状态 {@link com.bihell.dice.blog.utils.Types#MAIL_STATUS_PENDING}
+     */
+    private Integer status;
+
+    /**
+     * 已尝试发送的次数
+     */
+    private Integer attempts;
+
+    /**
+     * 下次尝试发送的时间
+     */
+    private LocalDateTime nextAttemptTime;
+
+    /**
+     * 最后一次发送失败的原因
+     */
+    private String lastError;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 发送成功的时间
+     */
+    private LocalDateTime sendTime;
+}
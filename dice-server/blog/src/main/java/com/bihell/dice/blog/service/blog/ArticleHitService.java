@@ -0,0 +1,24 @@
+package com.bihell.dice.blog.service.blog;
+
+/**
+ * 文章点击量 Service 接口
+ *
+ * @author bihell
+ */
+public interface ArticleHitService {
+
+    /**
+     * 记录一次点击,只在内存中计数,由定时任务批量写入数据库。
+     * 只统计已发布的文章,其他id直接忽略
+     *
+     * @param articleId 文章id
+     */
+    void hit(Integer articleId);
+
+    /**
+     * 将内存中累计的点击量写入数据库
+     *
+     * @return 写入的点击量
+     */
+    long flush();
+}
@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.bihell.dice.blog.model.blog.Article;
 import com.bihell.dice.blog.model.dto.Archive;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
 import com.bihell.dice.framework.core.pagination.Paging;
 import com.bihell.dice.blog.param.ArticlePageParam;
 
@@ -26,6 +27,15 @@ public interface ArticleService extends IService<Article> {
      */
     IPage<Article> getFrontArticles(Integer current, Integer limit);
 
+    /**
+     * 游标查询前端文章
+     *
+     * @param cursor 上一页返回的游标,第一页为空
+     * @param limit  每页数量
+     * @return CursorPaging<Article>
+     */
+    CursorPaging<Article> getFrontArticles(String cursor, Integer limit);
+
     /**
      * 根据id获取前端文章
      *
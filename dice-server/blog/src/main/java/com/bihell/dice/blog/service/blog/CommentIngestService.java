@@ -0,0 +1,26 @@
+package com.bihell.dice.blog.service.blog;
+
+import com.bihell.dice.blog.model.blog.Comment;
+
+/**
+ * 评论异步写入 Service 接口
+ *
+ * @author bihell
+ */
+public interface CommentIngestService {
+
+    /**
+     * 校验评论并放入写入队列,队列已满时暂存到 comment_staging 表
+     *
+     * @param comment 评论entity
+     * @return 是否接受,队列已满且无法暂存时返回false
+     */
+    boolean submit(Comment comment);
+
+    /**
+     * 将暂存的评论转存到 comment 表
+     *
+     * @return 转存的评论数量
+     */
+    int drainStaging();
+}
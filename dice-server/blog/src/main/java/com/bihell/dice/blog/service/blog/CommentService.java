@@ -3,10 +3,14 @@ package com.bihell.dice.blog.service.blog;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.bihell.dice.blog.model.blog.Comment;
 import com.bihell.dice.blog.model.dto.CommentDto;
+import com.bihell.dice.blog.model.dto.CommentNode;
 import com.bihell.dice.blog.param.CommentPageParam;
 import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
 import com.bihell.dice.framework.core.pagination.Paging;
 
+import java.util.List;
+
 /**
  * 评论 Service 接口
  *
@@ -21,6 +25,20 @@ public interface CommentService {
      */
     boolean save(Comment comments);
 
+    /**
+     * 校验评论内容和评论的文章,不通过时抛出 TipException
+     *
+     * @param comment 评论entity
+     */
+    void checkComment(Comment comment);
+
+    /**
+     * 批量保存已校验的评论,并增加文章的评论数
+     *
+     * @param comments 评论entity
+     */
+    void saveComments(List<Comment> comments);
+
     /**
      * 获取文章下的评论
      *
@@ -30,6 +48,24 @@ public interface CommentService {
      */
     IPage<Comment> getCommentsByArticleId(Integer current, Integer limit, Integer articleId);
 
+    /**
+     * 游标获取文章下的评论
+     *
+     * @param cursor    上一页返回的游标,第一页为空
+     * @param limit     每页数量
+     * @param articleId 文章id
+     * @return CursorPaging<Comment>
+     */
+    CursorPaging<Comment> getCommentsByArticleId(String cursor, Integer limit, Integer articleId);
+
+    /**
+     * 获取文章下的评论树
+     *
+     * @param articleId 文章id
+     * @return 根评论,回复在children中
+     */
+    List<CommentNode> getCommentTree(Integer articleId);
+
 
     /**
      * 获取评论列表
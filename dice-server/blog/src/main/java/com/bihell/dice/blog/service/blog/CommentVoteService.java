@@ -0,0 +1,25 @@
+package com.bihell.dice.blog.service.blog;
+
+/**
+ * 评论顶踩 Service 接口
+ *
+ * @author bihell
+ */
+public interface CommentVoteService {
+
+    /**
+     * 记录一次顶或踩,只在内存中计数,由定时任务批量写入数据库
+     *
+     * @param commentId 评论id
+     * @param articleId 评论所属文章id
+     * @param agree     true为顶,false为踩
+     */
+    void vote(Integer commentId, Integer articleId, boolean agree);
+
+    /**
+     * 将内存中累计的顶踩写入数据库
+     *
+     * @return 写入的顶踩数量
+     */
+    long flush();
+}
@@ -0,0 +1,142 @@
+package com.bihell.dice.blog.service.blog.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.bihell.dice.blog.enums.PostStatusEnum;
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
+import com.bihell.dice.blog.model.blog.Article;
+import com.bihell.dice.blog.model.dto.ArchiveArticle;
+import com.bihell.dice.blog.utils.CacheTagKeys;
+import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.CommonRedisKey;
+import com.bihell.dice.framework.cache.CacheTags;
+import com.bihell.dice.framework.common.service.RedisService;
+import com.bihell.dice.framework.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * 文章归档索引
+ * <p>
+ * 在redis hash中保存已发布文章的id、标题和创建时间,文章发布、撤回和删除时增量更新,
+ * 索引不存在或不完整时从数据库重建。
+ * 重建时先写入临时key再 RENAME 覆盖,只有带 {@link #COMPLETE_FIELD} 的索引才是完整的;
+ * 增量更新总是先递增版本再写入,重建前后版本不一致时说明有并发的更新可能被覆盖,去掉完整标记等待下次重建
+ *
+ * @author bihell
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ArchiveIndex {
+
+    /**
+     * 完整标记,重建时和文章一起写入
+     */
+    private static final String COMPLETE_FIELD = "_complete";
+
+    private final ArticleMapper articleMapper;
+    private final RedisService redisService;
+    private final CacheTags cacheTags;
+
+    /**
+     * 获取索引中的全部归档文章
+     *
+     * @return List<ArchiveArticle> 未排序
+     */
+    List<ArchiveArticle> list() {
+        Map<Object, Object> entries = redisService.hashEntries(CommonRedisKey.ARCHIVE_INDEX);
+        if (null == entries || null == entries.remove(COMPLETE_FIELD)) {
+            return rebuild();
+        }
+        List<ArchiveArticle> articles = new ArrayList<>(entries.size());
+        for (Object value : entries.values()) {
+            articles.add((ArchiveArticle) value);
+        }
+        return articles;
+    }
+
+    /**
+     * 从数据库重建索引
+     *
+     * @return List<ArchiveArticle>
+     */
+    List<ArchiveArticle> rebuild() {
+        Object version = redisService.get(CommonRedisKey.ARCHIVE_INDEX_VERSION);
+        List<Article> articles = articleMapper.selectList(publishedWrapper());
+        Map<String, Object> index = new HashMap<>(articles.size() * 4 / 3 + 2);
+        List<ArchiveArticle> result = new ArrayList<>(articles.size());
+        for (Article article : articles) {
+            ArchiveArticle archiveArticle = toArchiveArticle(article);
+            index.put(String.valueOf(article.getId()), archiveArticle);
+            result.add(archiveArticle);
+        }
+        index.put(COMPLETE_FIELD, Boolean.TRUE);
+        String tempKey = CommonRedisKey.ARCHIVE_INDEX + ":" + UUID.randomUUID();
+        redisService.hashPutAll(tempKey, index);
+        redisService.rename(tempKey, CommonRedisKey.ARCHIVE_INDEX);
+        if (!Objects.equals(version, redisService.get(CommonRedisKey.ARCHIVE_INDEX_VERSION))) {
+            // 重建期间有增量更新,可能被覆盖
+            redisService.hashDelete(CommonRedisKey.ARCHIVE_INDEX, COMPLETE_FIELD);
+        }
+        log.info("重建归档索引, 文章数量: {}", result.size());
+        return result;
+    }
+
+    /**
+     * 按文章当前状态更新索引,事务提交后执行
+     *
+     * @param id 文章id
+     */
+    void refresh(Integer id) {
+        if (null == id) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            redisService.increment(CommonRedisKey.ARCHIVE_INDEX_VERSION);
+            Article article = articleMapper.selectOne(publishedWrapper().eq(Article::getId, id));
+            if (null == article) {
+                redisService.hashDelete(CommonRedisKey.ARCHIVE_INDEX, String.valueOf(id));
+            } else {
+                redisService.hashSet(CommonRedisKey.ARCHIVE_INDEX, String.valueOf(id), toArchiveArticle(article));
+            }
+            cacheTags.evictImmediately(CacheTagKeys.ARTICLE_LIST);
+        });
+    }
+
+    /**
+     * 从索引中移除文章,事务提交后执行
+     *
+     * @param id 文章id
+     */
+    void remove(Integer id) {
+        TransactionUtil.afterCommit(() -> {
+            redisService.increment(CommonRedisKey.ARCHIVE_INDEX_VERSION);
+            redisService.hashDelete(CommonRedisKey.ARCHIVE_INDEX, String.valueOf(id));
+            cacheTags.evictImmediately(CacheTagKeys.ARTICLE_LIST);
+        });
+    }
+
+    private LambdaQueryWrapper<Article> publishedWrapper() {
+        return new QueryWrapper<Article>().lambda()
+                .select(Article::getId, Article::getTitle, Article::getCreateTime)
+                .eq(Article::getStatus, PostStatusEnum.PUBLISHED)
+                .eq(Article::getType, Types.POST);
+    }
+
+    private ArchiveArticle toArchiveArticle(Article article) {
+        return new ArchiveArticle()
+                .setId(article.getId())
+                .setTitle(article.getTitle())
+                .setCreateTime(article.getCreateTime());
+    }
+}
@@ -0,0 +1,281 @@
+package com.bihell.dice.blog.service.blog.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.bihell.dice.blog.enums.PostStatusEnum;
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
+import com.bihell.dice.blog.model.blog.Article;
+import com.bihell.dice.blog.service.blog.ArticleHitService;
+import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.CommonRedisKey;
+import com.bihell.dice.config.properties.DiceHitsProperties;
+import com.bihell.dice.framework.common.service.RedisService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文章点击量 Service 实现类
+ * <p>
+ * 点击量先累计在每篇文章的 LongAdder 中,定时批量写入数据库,不清除文章缓存。
+ * LongAdder 只增不减,每次写入取出和上次取出之间的差值,并发的点击不会丢失;
+ * 计数器只在文章不再是已发布状态时移除,数量不超过已发布文章的数量。
+ * 启用 redis 模式时各节点先用 HINCRBY 汇总到 redis,再由拿到锁的节点写入数据库。
+ * 只统计已发布文章的点击,已发布文章的id保存在内存中,归档索引版本变化时重新加载
+ *
+ * @author bihell
+ */
+@Slf4j
+@Service("articleHitService")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ArticleHitServiceImpl implements ArticleHitService {
+
+    private final ArticleMapper articleMapper;
+    private final RedisService redisService;
+    private final DiceHitsProperties hitsProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Object publishedLock = new Object();
+
+    /**
+     * 已发布文章的id,为空时在第一次点击时加载
+     */
+    private volatile Set<Integer> publishedIds;
+
+    /**
+     * 加载 publishedIds 时归档索引的版本,加载失败时为新对象,保证下次检查时重新加载
+     */
+    private volatile Object publishedVersion;
+
+    @Override
+    public void hit(Integer articleId) {
+        if (null == articleId || !publishedIds().contains(articleId)) {
+            return;
+        }
+        counters.computeIfAbsent(articleId, k -> new Counter()).total.increment();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${dice.hits.flush-interval:10000}")
+    public synchronized long flush() {
+        Map<Integer, Long> deltas = drainCounters();
+        if (hitsProperties.isRedisEnable()) {
+            try {
+                // 在一个事务中汇总,失败时redis中没有写入任何点击量,可以全部写入数据库
+                Map<String, Long> fields = new HashMap<>(deltas.size() * 4 / 3 + 1);
+                deltas.forEach((id, delta) -> fields.put(String.valueOf(id), delta));
+                redisService.hashIncrementAll(CommonRedisKey.ARTICLE_HITS_PENDING, fields);
+            } catch (Exception e) {
+                // redis 不可用时直接写入数据库
+                log.error("汇总点击量到redis失败", e);
+                return writeOrRestore(deltas);
+            }
+            return flushRedis();
+        }
+        return writeOrRestore(deltas);
+    }
+
+    /**
+     * 归档索引版本变化时重新加载已发布文章的id,文章发布、撤回和删除都会递增该版本
+     */
+    @Scheduled(fixedDelayString = "${dice.hits.published-check-interval:10000}")
+    public void refreshPublishedIds() {
+        Object version = null;
+        boolean changed = true;
+        try {
+            version = redisService.get(CommonRedisKey.ARCHIVE_INDEX_VERSION);
+            changed = null == publishedIds || !Objects.equals(version, publishedVersion);
+        } catch (Exception e) {
+            log.warn("读取归档索引版本失败, 重新加载已发布文章", e);
+        }
+        if (changed) {
+            synchronized (publishedLock) {
+                loadPublishedIds(version);
+            }
+        }
+    }
+
+    private Set<Integer> publishedIds() {
+        Set<Integer> ids = publishedIds;
+        if (null == ids) {
+            synchronized (publishedLock) {
+                ids = publishedIds;
+                if (null == ids) {
+                    Object version = null;
+                    try {
+                        version = redisService.get(CommonRedisKey.ARCHIVE_INDEX_VERSION);
+                    } catch (Exception e) {
+                        log.warn("读取归档索引版本失败", e);
+                    }
+                    ids = loadPublishedIds(version);
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 从数据库加载已发布文章的id,失败时暂时不统计点击,等下次定时检查
+     */
+    private Set<Integer> loadPublishedIds(Object version) {
+        Set<Integer> ids;
+        try {
+            List<Object> rows = articleMapper.selectObjs(new QueryWrapper<Article>().lambda()
+                    .select(Article::getId)
+                    .eq(Article::getStatus, PostStatusEnum.PUBLISHED)
+                    .eq(Article::getType, Types.POST));
+            ids = new HashSet<>(rows.size() * 4 / 3 + 1);
+            for (Object id : rows) {
+                ids.add(((Number) id).intValue());
+            }
+        } catch (Exception e) {
+            log.error("加载已发布文章失败", e);
+            publishedIds = Collections.emptySet();
+            publishedVersion = new Object();
+            return publishedIds;
+        }
+        publishedVersion = version;
+        publishedIds = ids;
+        return ids;
+    }
+
+    /**
+     * 关闭时写入还未保存的点击量
+     */
+    @PreDestroy
+    public void shutdown() {
+        long count = flush();
+        log.info("关闭前写入点击量: {}", count);
+    }
+
+    /**
+     * 取出上次取出之后的点击量,没有新点击且文章已不是已发布状态的计数器会被移除
+     */
+    private Map<Integer, Long> drainCounters() {
+        Map<Integer, Long> deltas = new HashMap<>(counters.size() * 4 / 3 + 1);
+        Set<Integer> published = publishedIds;
+        counters.forEach((id, counter) -> {
+            long delta = counter.total.sum() - counter.drained;
+            if (delta > 0) {
+                deltas.put(id, delta);
+                counter.drained += delta;
+            } else if (null != published && !published.contains(id)) {
+                counters.remove(id, counter);
+            }
+        });
+        return deltas;
+    }
+
+    /**
+     * 写入数据库,失败时退回取出的点击量等待下次写入
+     */
+    private long writeOrRestore(Map<Integer, Long> deltas) {
+        try {
+            return write(deltas);
+        } catch (Exception e) {
+            log.error("写入点击量失败", e);
+            deltas.forEach((id, delta) -> {
+                Counter counter = counters.get(id);
+                if (null != counter) {
+                    counter.drained -= delta;
+                }
+            });
+            return 0;
+        }
+    }
+
+    /**
+     * 拿到锁的节点将 redis 中汇总的点击量写入数据库,失败时数据保留在 redis 中由下次重试
+     */
+    private long flushRedis() {
+        if (!redisService.setIfAbsent(CommonRedisKey.ARTICLE_HITS_LOCK, nodeId,
+                hitsProperties.getRedisLockTimeout(), TimeUnit.SECONDS)) {
+            return 0;
+        }
+        Map<Integer, Long> deltas = new HashMap<>(16);
+        long total;
+        try {
+            // 上次写入中断时先处理遗留的数据
+            if (!redisService.exists(CommonRedisKey.ARTICLE_HITS_FLUSHING)
+                    && redisService.exists(CommonRedisKey.ARTICLE_HITS_PENDING)) {
+                redisService.renameIfAbsent(CommonRedisKey.ARTICLE_HITS_PENDING, CommonRedisKey.ARTICLE_HITS_FLUSHING);
+            }
+            redisService.hashEntries(CommonRedisKey.ARTICLE_HITS_FLUSHING).forEach((id, delta) ->
+                    deltas.put(Integer.valueOf(String.valueOf(id)), Long.valueOf(String.valueOf(delta))));
+            total = write(deltas);
+            redisService.remove(CommonRedisKey.ARTICLE_HITS_FLUSHING);
+        } catch (Exception e) {
+            log.error("写入redis汇总的点击量失败", e);
+            return 0;
+        } finally {
+            if (nodeId.equals(redisService.get(CommonRedisKey.ARTICLE_HITS_LOCK))) {
+                redisService.remove(CommonRedisKey.ARTICLE_HITS_LOCK);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 在一个事务中分批写入数据库,失败时所有批次一起回滚,放回或保留的点击量不会重复计入
+     */
+    private long write(Map<Integer, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        Long total = transactionTemplate.execute(status -> writeBatches(deltas));
+        return null == total ? 0 : total;
+    }
+
+    private long writeBatches(Map<Integer, Long> deltas) {
+        long total = 0;
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(deltas.entrySet());
+        int batchSize = hitsProperties.getBatchSize();
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            Map<Integer, Long> batch = new LinkedHashMap<>(batchSize * 4 / 3 + 1);
+            for (Map.Entry<Integer, Long> entry : entries.subList(i, Math.min(i + batchSize, entries.size()))) {
+                batch.put(entry.getKey(), entry.getValue());
+                total += entry.getValue();
+            }
+            articleMapper.increaseHits(batch);
+        }
+        log.debug("写入点击量, 文章: {}, 点击: {}", deltas.size(), total);
+        return total;
+    }
+
+    /**
+     * 一篇文章的点击计数器
+     */
+    private static class Counter {
+
+        /**
+         * 累计点击量,只增不减
+         */
+        private final LongAdder total = new LongAdder();
+
+        /**
+         * 已取出的点击量,只在 flush 中读写
+         */
+        private long drained;
+    }
+}
@@ -10,7 +10,12 @@ import com.bihell.dice.blog.mapper.blogs.CommentMapper;
 import com.bihell.dice.blog.model.blog.Article;
 import com.bihell.dice.blog.model.blog.Comment;
 import com.bihell.dice.blog.model.dto.Archive;
+import com.bihell.dice.blog.model.dto.ArchiveArticle;
+import com.bihell.dice.blog.utils.CacheTagKeys;
+import com.bihell.dice.framework.cache.CacheTags;
 import com.bihell.dice.framework.common.service.impl.BaseServiceImpl;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
+import com.bihell.dice.framework.core.pagination.PageCursor;
 import com.bihell.dice.framework.core.pagination.PageInfo;
 import com.bihell.dice.framework.core.pagination.Paging;
 import com.bihell.dice.framework.shiro.cache.LoginRedisService;
@@ -19,22 +24,29 @@ import com.bihell.dice.blog.enums.PostStatusEnum;
 import com.bihell.dice.framework.common.exception.TipException;
 import com.bihell.dice.blog.service.blog.ArticleService;
 import com.bihell.dice.blog.service.blog.MetaService;
+import com.bihell.dice.blog.service.search.SearchService;
 import com.bihell.dice.framework.common.service.RedisService;
 import com.bihell.dice.config.constant.DiceConsts;
 import com.bihell.dice.framework.util.DiceUtil;
+import com.bihell.dice.blog.utils.RenderUtil;
 import com.bihell.dice.blog.utils.Types;
 import com.bihell.dice.blog.param.ArticlePageParam;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 文章 Service 实现类
@@ -50,11 +62,19 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
 
     static final String ARTICLE_CACHE_NAME = "articles";
 
+    /**
+     * 列表查询不需要的内容字段
+     */
+    private static final Set<String> CONTENT_COLUMNS = new HashSet<>(Arrays.asList("content", "content_html", "summary_html"));
+
     private final ArticleMapper articleMapper;
     private final MetaService metasService;
     private final CommentMapper commentsMapper;
     private final RedisService redisService;
     private final LoginRedisService loginRedisService;
+    private final ArchiveIndex archiveIndex;
+    private final SearchService searchService;
+    private final CacheTags cacheTags;
 
     /**
      * 分页查询前端文章
@@ -64,22 +84,55 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return Page<Article>
      */
     @Override
-    @Cacheable(value = ARTICLE_CACHE_NAME, key = "'font_articles['+#current+':'+#limit+']'")
+    @Cacheable(value = ARTICLE_CACHE_NAME, key = "@cacheTags.key('font_articles['+#current+':'+#limit+']', 'list:articles')", sync = true)
     public IPage<Article> getFrontArticles(Integer current, Integer limit) {
 
         Page<Article> page = new Page<>(current, limit);
-        LambdaQueryWrapper<Article> wrapper = new QueryWrapper<Article>().lambda()
-                .eq(Article::getStatus, PostStatusEnum.PUBLISHED)
-                .eq(Article::getType, Types.POST)
-                .orderByDesc(Article::getPriority, Article::getCreateTime);
-        IPage<Article> result = articleMapper.selectPage(page, wrapper);
+        IPage<Article> result = articleMapper.selectFrontSummaryPage(page, DiceConsts.MARKDOWN_RENDER_VERSION);
+        result.getRecords().forEach(this::toFrontSummary);
+        return result;
+    }
 
-        result.getRecords().forEach(article -> {
-            String content = DiceUtil.contentTransform(article.getContent(), true, true);
-            article.setContent(content);
-        });
+    /**
+     * 游标查询前端文章
+     *
+     * @param cursor 上一页返回的游标,第一页为空
+     * @param limit  每页数量
+     * @return CursorPaging<Article>
+     */
+    @Override
+    @Cacheable(value = ARTICLE_CACHE_NAME, key = "@cacheTags.key('front_articles_cursor['+#cursor+':'+#limit+']', 'list:articles')", sync = true)
+    public CursorPaging<Article> getFrontArticles(String cursor, Integer limit) {
+        // 控制器已限制每页数量,这里再限制一次防止其他调用方传入过大的值
+        limit = PageCursor.limit(limit);
+        String[] keys = PageCursor.decode(cursor, 3);
+        List<Article> articles;
+        if (null == keys) {
+            articles = articleMapper.selectFrontSummaryAfter(DiceConsts.MARKDOWN_RENDER_VERSION, null, null, null, limit + 1);
+        } else {
+            try {
+                articles = articleMapper.selectFrontSummaryAfter(DiceConsts.MARKDOWN_RENDER_VERSION,
+                        Integer.valueOf(keys[0]), LocalDateTime.parse(keys[1]), Integer.valueOf(keys[2]), limit + 1);
+            } catch (NumberFormatException | DateTimeParseException e) {
+                throw new TipException("游标参数不合法");
+            }
+        }
+        articles.forEach(this::toFrontSummary);
+        return new CursorPaging<>(articles, limit, article -> PageCursor.encode(
+                null == article.getPriority() ? 0 : article.getPriority(), article.getCreateTime(), article.getId()));
+    }
 
-        return result;
+    /**
+     * 前端文章列表只返回摘要html
+     *
+     * @param article 文章entity
+     */
+    private void toFrontSummary(Article article) {
+        if (DiceUtil.isRenderStale(article.getRenderVersion())) {
+            // 只渲染数据库截取的预览,完整内容由文章详情或回填任务重新渲染
+            article.setSummaryHtml(DiceUtil.contentTransform(article.getContent(), true, true));
+        }
+        article.setContent(article.getSummaryHtml());
     }
 
     /**
@@ -89,27 +142,29 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return Article
      */
     @Override
-    @Cacheable(value = ARTICLE_CACHE_NAME, key = "'front_article['+#id+']['+#token+']'")
+    @Cacheable(value = ARTICLE_CACHE_NAME, key = "@cacheTags.key('front_article['+#id+']['+#token+']', 'article:'+#id, 'articles')", sync = true)
     public Article getFrontArticle(Integer id, String token) {
         if (StringUtils.isEmpty(token)) {
             Article article = new Article().selectOne(new QueryWrapper<Article>().lambda()
+                    .select(Article.class, info -> !"content".equals(info.getColumn()) && !"summary_html".equals(info.getColumn()))
                     .eq(Article::getId, id)
                     .eq(Article::getStatus, PostStatusEnum.PUBLISHED)
                     .eq(Article::getType, Types.POST));
             if (article != null) {
-                String content = DiceUtil.contentTransform(article.getContent(), false, true);
-                article.setContent(content);
+                renderIfStale(article);
+                article.setContent(article.getContentHtml());
             }
             return article;
         } else {
             Long userId = LoginUtil.getUserId(token);
             Article article = new Article().selectOne(new QueryWrapper<Article>().lambda()
+                    .select(Article.class, info -> !"content".equals(info.getColumn()) && !"summary_html".equals(info.getColumn()))
                     .eq(Article::getId, id)
                     .eq(Article::getType, Types.POST)
                     .eq(Article::getCreator, userId));
             if (article != null) {
-                String content = DiceUtil.contentTransform(article.getContent(), false, true);
-                article.setContent(content);
+                renderIfStale(article);
+                article.setContent(article.getContentHtml());
             }
             return article;
         }
@@ -119,12 +174,22 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
     public Paging<Article> getArticlePageList(ArticlePageParam articlePageParam) throws Exception {
         Page<Article> page = new PageInfo<>(articlePageParam, OrderItem.desc("update_time"));
         LambdaQueryWrapper<Article> wrapper = new QueryWrapper<Article>().lambda()
-                .select(Article.class, info -> !"content".equals(info.getColumn()))
+                .select(Article.class, info -> !CONTENT_COLUMNS.contains(info.getColumn()))
                 .eq(Article::getType, Types.POST)
                 .eq(!StringUtils.isEmpty(articlePageParam.getStatus()), Article::getStatus, articlePageParam.getStatus())
                 .eq(!StringUtils.isEmpty(articlePageParam.getPriority()), Article::getPriority, articlePageParam.getPriority())
-                .like(!StringUtils.isEmpty(articlePageParam.getTitle()), Article::getTitle, articlePageParam.getTitle())
-                .like(!StringUtils.isEmpty(articlePageParam.getContent()), Article::getContent, articlePageParam.getContent());
+                .like(!StringUtils.isEmpty(articlePageParam.getTitle()), Article::getTitle, articlePageParam.getTitle());
+        if (!StringUtils.isEmpty(articlePageParam.getContent())) {
+            if (searchService.isEnabled()) {
+                List<Integer> ids = searchService.searchIds(articlePageParam.getContent(), Types.POST);
+                if (ids.isEmpty()) {
+                    return new Paging<>(page);
+                }
+                wrapper.in(Article::getId, ids);
+            } else {
+                wrapper.like(Article::getContent, articlePageParam.getContent());
+            }
+        }
         IPage<Article> iPage = articleMapper.selectPage(page, wrapper);
         return new Paging<>(iPage);
     }
@@ -153,12 +218,12 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      */
 
     @Override
-    @CacheEvict(value = ARTICLE_CACHE_NAME, allEntries = true, beforeInvocation = true)
     public Integer saveArticle(Article article) {
         if (null == article.getCreator()) {
             throw new TipException("请先登陆后发布文章");
         }
 
+        RenderUtil.renderArticle(article);
         if (null != article.getId()) {
             article.updateById();
         } else {
@@ -167,6 +232,8 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
         }
 
         Integer id = article.getId();
+        archiveIndex.refresh(id);
+        searchService.index(id);
 
         // 存储分类和标签
         if (article.getCategory() != null) {
@@ -175,6 +242,7 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
         if (article.getTags() != null) {
             metasService.saveOrRemoveMetas(article.getTags(), Types.TAG, id);
         }
+        cacheTags.evict(CacheTagKeys.article(id), CacheTagKeys.ARTICLE_LIST);
 
         return id;
     }
@@ -187,12 +255,22 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return boolean
      */
     @Override
-    @CacheEvict(value = ARTICLE_CACHE_NAME, allEntries = true, beforeInvocation = true)
     public boolean updateArticle(Article article) {
         if (null == article) {
             throw new TipException("文章不能为空");
         }
-        return article.updateById();
+        RenderUtil.renderArticle(article);
+        boolean result = article.updateById();
+        cacheTags.evict(CacheTagKeys.article(article.getId()), CacheTagKeys.ARTICLE_LIST);
+        // 只有状态和标题变化才会影响归档
+        if (result && (null != article.getStatus() || null != article.getTitle())) {
+            archiveIndex.refresh(article.getId());
+        }
+        if (result && (null != article.getStatus() || null != article.getTitle()
+                || null != article.getContent() || null != article.getTags())) {
+            searchService.index(article.getId());
+        }
+        return result;
     }
 
 
@@ -203,11 +281,13 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return boolean
      */
     @Override
-    @CacheEvict(value = ARTICLE_CACHE_NAME, allEntries = true, beforeInvocation = true)
     public boolean deleteArticle(Integer id) {
 
         if (articleMapper.deleteById(id) > 0) {
             log.info("删除文章: {}", id);
+            archiveIndex.remove(id);
+            searchService.remove(id);
+            cacheTags.evict(CacheTagKeys.article(id), CacheTagKeys.ARTICLE_LIST, CacheTagKeys.PAGE_LIST, CacheTagKeys.comments(id));
 
             // 删除文章下的评论
 
@@ -225,36 +305,32 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
     /**
      * 获取归档信息
      *
-     * @return List<Archive>
+     * @return List<Archive> 按年分组,每年包含按月的统计
      */
     @Override
-    // todo  这里用了 redis 之后缓存序列化有问题
-    //@Cacheable(value = ARTICLE_CACHE_NAME, key = "'archives'")
+    @Cacheable(value = ARTICLE_CACHE_NAME, key = "@cacheTags.key('archives', 'list:articles')", sync = true)
     public List<Archive> getArchives() {
-        List<Article> articles = new Article().selectList(new QueryWrapper<Article>().lambda()
-                .eq(Article::getStatus, PostStatusEnum.PUBLISHED)
-                .eq(Article::getType, Types.POST)
-                .orderByDesc(Article::getCreateTime));
+        List<ArchiveArticle> articles = archiveIndex.list();
+        articles.sort(Comparator.comparing(ArchiveArticle::getCreateTime).reversed());
+
         List<Archive> archives = new ArrayList<>();
-        String current = "";
-        for (Article article : articles) {
-            // 清空文章内容
-            article.setContent("");
-            String year = String.valueOf(article.getCreateTime().getYear());
-            if (year.equals(current)) {
-                Archive arc = archives.get(archives.size() - 1);
-                arc.getArticles().add(article);
-                arc.setCount(arc.getArticles().size());
-            } else {
-                current = year;
-                Archive arc = new Archive();
-                arc.setDateStr(year);
-                arc.setCount(1);
-                List<Article> arts = new ArrayList<>();
-                arts.add(article);
-                arc.setArticles(arts);
-                archives.add(arc);
+        Archive year = null;
+        Archive month = null;
+        for (ArchiveArticle article : articles) {
+            String yearStr = String.valueOf(article.getCreateTime().getYear());
+            String monthStr = String.format("%s-%02d", yearStr, article.getCreateTime().getMonthValue());
+            if (null == year || !yearStr.equals(year.getDateStr())) {
+                year = new Archive().setDateStr(yearStr).setCount(0)
+                        .setArticles(new ArrayList<>()).setMonths(new ArrayList<>());
+                archives.add(year);
+            }
+            if (null == month || !monthStr.equals(month.getDateStr())) {
+                month = new Archive().setDateStr(monthStr).setCount(0);
+                year.getMonths().add(month);
             }
+            year.getArticles().add(article);
+            year.setCount(year.getCount() + 1);
+            month.setCount(month.getCount() + 1);
         }
         return archives;
     }
@@ -266,14 +342,17 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return Article
      */
     @Override
-    @Cacheable(value = ARTICLE_CACHE_NAME, key = "'front_page['+#id+']'")
+    @Cacheable(value = ARTICLE_CACHE_NAME, key = "@cacheTags.key('front_page['+#id+']', 'article:'+#id, 'articles')", sync = true)
     public Article getFrontPage(Integer id) {
         Article article = new Article().selectOne(new QueryWrapper<Article>().lambda()
+                .select(Article.class, info -> !"content".equals(info.getColumn()) && !"summary_html".equals(info.getColumn()))
                 .eq(Article::getId, id)
                 .eq(Article::getStatus, PostStatusEnum.PUBLISHED)
                 .eq(Article::getType, Types.PAGE));
-        String content = DiceUtil.contentTransform(article.getContent(), false, true);
-        article.setContent(content);
+        if (article != null) {
+            renderIfStale(article);
+            article.setContent(article.getContentHtml());
+        }
         return article;
     }
 
@@ -288,7 +367,7 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
         Page<Article> page = new PageInfo<>(articlePageParam, OrderItem.desc("update_time"));
 
         LambdaQueryWrapper<Article> wrapper = new QueryWrapper<Article>().lambda()
-                .select(Article.class, info -> !"content".equals(info.getColumn()))
+                .select(Article.class, info -> !CONTENT_COLUMNS.contains(info.getColumn()))
                 .eq(Article::getType, Types.PAGE);
         IPage<Article> iPage = articleMapper.selectPage(page, wrapper);
         return new Paging<>(iPage);
@@ -317,7 +396,6 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return Integer
      */
     @Override
-    @CacheEvict(value = ARTICLE_CACHE_NAME, allEntries = true, beforeInvocation = true)
     public Integer savePage(Article page) {
         if (null == page) {
             throw new TipException("自定义页面对象为空");
@@ -338,12 +416,15 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
         if (null == page.getCreator()) {
             throw new TipException("请先登陆");
         }
+        RenderUtil.renderArticle(page);
         if (null != page.getId()) {
             page.updateById();
         } else {
             page.setType(Types.PAGE);
             page.insert();
         }
+        searchService.index(page.getId());
+        cacheTags.evict(CacheTagKeys.article(page.getId()), CacheTagKeys.PAGE_LIST);
 
         return page.getId();
     }
@@ -373,6 +454,7 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
             throw new TipException("自定义代码段容字数不能超过" + DiceConsts.MAX_CONTENT_COUNT);
         }
 
+        RenderUtil.renderArticle(snippet);
         if (null != snippet.getId()) {
             snippet.updateById();
         } else {
@@ -381,6 +463,7 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
         }
 
         Integer id = snippet.getId();
+        searchService.index(id);
 
         // 存储分类和标签
         metasService.saveOrRemoveMetas(snippet.getTags(), Types.SNIPPET_TAG, id);
@@ -394,12 +477,28 @@ public class ArticleServiceImpl extends BaseServiceImpl<ArticleMapper, Article>
      * @return List<ArticleInfoDto>
      */
     @Override
-    @Cacheable(value = ARTICLE_CACHE_NAME, key = "'front_pages'")
+    @Cacheable(value = ARTICLE_CACHE_NAME, key = "@cacheTags.key('front_pages', 'list:pages')", sync = true)
     public List<Article> getFrontPageList() {
 
         return articleMapper.selectList(new QueryWrapper<Article>().lambda()
-                .select(Article.class, info -> !"content".equals(info.getColumn()))
+                .select(Article.class, info -> !CONTENT_COLUMNS.contains(info.getColumn()))
                 .eq(Article::getType, Types.PAGE)
                 .orderByDesc(Article::getPriority, Article::getId));
     }
+
+    /**
+     * 渲染结果为空或渲染版本过期时重新渲染并保存
+     *
+     * @param article 文章entity
+     */
+    private void renderIfStale(Article article) {
+        if (!DiceUtil.isRenderStale(article.getRenderVersion())) {
+            return;
+        }
+        if (null == article.getContent()) {
+            article.setContent(articleMapper.selectById(article.getId()).getContent());
+        }
+        RenderUtil.renderArticle(article);
+        articleMapper.updateRendered(article);
+    }
 }
@@ -0,0 +1,332 @@
+package com.bihell.dice.blog.service.blog.impl;
+
+import com.bihell.dice.blog.mapper.blogs.CommentStagingMapper;
+import com.bihell.dice.blog.model.blog.Comment;
+import com.bihell.dice.blog.service.blog.CommentIngestService;
+import com.bihell.dice.blog.service.blog.CommentService;
+import com.bihell.dice.config.constant.CommonRedisKey;
+import com.bihell.dice.config.properties.DiceCommentIngestProperties;
+import com.bihell.dice.framework.common.service.RedisService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 评论异步写入 Service 实现类
+ * <p>
+ * 请求线程只校验评论并放入有界队列,写入线程凑批后一次插入评论、增加评论数,邮件提醒在同一事务中写入发件箱。
+ * 队列已满时暂存到 comment_staging 表,由定时任务在拿到锁后转存。
+ * 一批写入失败时逐条重试,单条评论多次失败后移出队列,不会一直堵住后面的评论
+ *
+ * @author bihell
+ */
+@Slf4j
+@Service("commentIngestService")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class CommentIngestServiceImpl implements CommentIngestService {
+
+    /**
+     * 写入失败后重试的间隔(毫秒)
+     */
+    private static final long RETRY_INTERVAL = 1000L;
+
+    private final CommentService commentService;
+    private final CommentStagingMapper commentStagingMapper;
+    private final RedisService redisService;
+    private final TransactionTemplate transactionTemplate;
+    private final DiceCommentIngestProperties ingestProperties;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 队列中评论的失败次数,按对象区分
+     */
+    private final Map<Comment, Integer> attempts = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private LinkedBlockingDeque<Comment> queue;
+
+    private ExecutorService workers;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new LinkedBlockingDeque<>(ingestProperties.getQueueCapacity());
+        if (!ingestProperties.isEnable()) {
+            return;
+        }
+        running = true;
+        workers = Executors.newFixedThreadPool(ingestProperties.getWorkers(), new CustomizableThreadFactory("comment-ingest-"));
+        for (int i = 0; i < ingestProperties.getWorkers(); i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    @Override
+    public boolean submit(Comment comment) {
+        commentService.checkComment(comment);
+        comment.setCreateTime(LocalDateTime.now());
+        return queue.offer(comment) || stage(Collections.singletonList(comment));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${dice.comment-ingest.staging-interval:10000}")
+    public int drainStaging() {
+        if (!ingestProperties.isEnable() || !ingestProperties.isStagingEnable()
+                || !redisService.setIfAbsent(CommonRedisKey.COMMENT_STAGING_LOCK, nodeId,
+                ingestProperties.getStagingLockTimeout(), TimeUnit.SECONDS)) {
+            return 0;
+        }
+        int total = 0;
+        try {
+            List<Comment> staged;
+            // 队列有空位时才转存,避免和新评论争抢
+            while (queue.remainingCapacity() > 0
+                    && !(staged = commentStagingMapper.selectBatch(ingestProperties.getBatchSize())).isEmpty()) {
+                List<Integer> ids = new ArrayList<>(staged.size());
+                for (Comment comment : staged) {
+                    ids.add(comment.getId());
+                }
+                List<Comment> batch = staged;
+                try {
+                    // 写入评论和删除暂存在同一个事务中,避免重复写入
+                    transactionTemplate.executeWithoutResult(status -> {
+                        commentService.saveComments(batch);
+                        commentStagingMapper.deleteByIds(ids);
+                    });
+                    total += staged.size();
+                } catch (Exception e) {
+                    log.error("批量转存暂存评论失败, 数量: {}", staged.size(), e);
+                    // 逐条转存后等下次执行,失败的评论间隔一次转存周期再重试
+                    total += transferEach(staged);
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("转存暂存评论失败", e);
+        } finally {
+            if (nodeId.equals(redisService.get(CommonRedisKey.COMMENT_STAGING_LOCK))) {
+                redisService.remove(CommonRedisKey.COMMENT_STAGING_LOCK);
+            }
+        }
+        if (total > 0) {
+            log.info("转存暂存评论: {}", total);
+        }
+        return total;
+    }
+
+    /**
+     * 逐条转存暂存评论,失败的评论增加失败次数,达到 maxAttempts 后删除
+     *
+     * @return 转存成功的数量
+     */
+    private int transferEach(List<Comment> staged) {
+        int total = 0;
+        for (Comment comment : staged) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    commentService.saveComments(Collections.singletonList(comment));
+                    commentStagingMapper.deleteByIds(Collections.singletonList(comment.getId()));
+                });
+                total++;
+            } catch (Exception e) {
+                log.error("转存暂存评论失败, id: {}", comment.getId(), e);
+                if (isTransient(e)) {
+                    // 数据库不可用,不计入失败次数,等下次转存
+                    break;
+                }
+                try {
+                    commentStagingMapper.increaseAttempts(comment.getId());
+                    if (commentStagingMapper.deleteExhausted(comment.getId(), ingestProperties.getMaxAttempts()) > 0) {
+                        log.error("暂存评论多次转存失败, 丢弃: {}", comment);
+                    }
+                } catch (Exception ex) {
+                    // 数据库不可用,等下次转存
+                    log.error("记录暂存评论失败次数失败", ex);
+                    break;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 关闭时写入队列中剩余的评论,写入失败时暂存
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (null == workers) {
+            return;
+        }
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(ingestProperties.getBatchWait() * 10, TimeUnit.MILLISECONDS)) {
+            workers.shutdownNow();
+        }
+        List<Comment> rest = new ArrayList<>(queue.size());
+        queue.drainTo(rest);
+        if (!rest.isEmpty() && !save(rest) && !stage(rest)) {
+            log.error("关闭时评论写入失败, 丢失: {}", rest);
+        }
+    }
+
+    /**
+     * 写入线程,等待 batchWait 凑批后写入
+     */
+    private void work() {
+        int batchSize = ingestProperties.getBatchSize();
+        List<Comment> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Comment first = queue.poll(ingestProperties.getBatchWait(), TimeUnit.MILLISECONDS);
+                if (null == first) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (save(batch)) {
+                    clearAttempts(batch);
+                } else {
+                    saveEach(batch);
+                }
+            } catch (InterruptedException e) {
+                requeue(batch);
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 一批写入失败后逐条写入。
+     * 失败的评论放回队列,数据库不可用等临时错误不计入失败次数,
+     * 失败次数达到 maxAttempts 的评论暂存,无法暂存时丢弃并记录日志
+     */
+    private void saveEach(List<Comment> batch) throws InterruptedException {
+        List<Comment> retry = new ArrayList<>();
+        List<Comment> exhausted = new ArrayList<>();
+        for (Comment comment : batch) {
+            Exception failure = trySave(Collections.singletonList(comment));
+            if (null == failure) {
+                attempts.remove(comment);
+                continue;
+            }
+            if (isTransient(failure)) {
+                retry.add(comment);
+                continue;
+            }
+            int count = attempts.merge(comment, 1, Integer::sum);
+            if (count >= ingestProperties.getMaxAttempts()) {
+                attempts.remove(comment);
+                exhausted.add(comment);
+            } else {
+                retry.add(comment);
+            }
+        }
+        if (!exhausted.isEmpty() && !stage(exhausted)) {
+            log.error("评论多次写入失败, 丢弃: {}", exhausted);
+        }
+        if (!retry.isEmpty()) {
+            requeue(retry);
+            batch.clear();
+            Thread.sleep(RETRY_INTERVAL);
+        }
+    }
+
+    private void clearAttempts(List<Comment> batch) {
+        if (!attempts.isEmpty()) {
+            batch.forEach(attempts::remove);
+        }
+    }
+
+    /**
+     * 写入一批评论
+     *
+     * @return 是否写入成功
+     */
+    private boolean save(List<Comment> batch) {
+        return null == trySave(batch);
+    }
+
+    /**
+     * 写入一批评论
+     *
+     * @return 写入失败的原因,成功时返回null
+     */
+    private Exception trySave(List<Comment> batch) {
+        try {
+            commentService.saveComments(batch);
+        } catch (Exception e) {
+            log.error("批量写入评论失败, 数量: {}", batch.size(), e);
+            return e;
+        }
+        return null;
+    }
+
+    /**
+     * 是否为连接失败等和评论内容无关的错误
+     */
+    private static boolean isTransient(Exception e) {
+        return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException;
+    }
+
+    /**
+     * 写入失败的评论放回队列头部,放不下的暂存
+     */
+    private void requeue(List<Comment> batch) {
+        List<Comment> overflow = new ArrayList<>();
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            if (!queue.offerFirst(batch.get(i))) {
+                overflow.add(0, batch.get(i));
+            }
+        }
+        if (!overflow.isEmpty() && !stage(overflow)) {
+            log.error("评论写入失败且无法暂存, 丢失: {}", overflow);
+        }
+    }
+
+    /**
+     * 暂存到 comment_staging 表
+     *
+     * @return 是否暂存成功
+     */
+    private boolean stage(List<Comment> comments) {
+        if (!ingestProperties.isStagingEnable()) {
+            return false;
+        }
+        try {
+            for (Comment comment : comments) {
+                commentStagingMapper.insert(comment);
+            }
+            return true;
+        } catch (Exception e) {
+            log.error("暂存评论失败", e);
+            return false;
+        }
+    }
+}
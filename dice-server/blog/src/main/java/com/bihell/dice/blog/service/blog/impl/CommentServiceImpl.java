@@ -5,29 +5,45 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
 import com.bihell.dice.blog.mapper.blogs.CommentMapper;
 import com.bihell.dice.blog.model.blog.Article;
 import com.bihell.dice.blog.model.blog.Comment;
 import com.bihell.dice.blog.model.dto.CommentDto;
+import com.bihell.dice.blog.model.dto.CommentNode;
 import com.bihell.dice.blog.param.CommentPageParam;
 import com.bihell.dice.framework.common.exception.TipException;
 import com.bihell.dice.blog.service.blog.CommentService;
+import com.bihell.dice.blog.service.blog.CommentVoteService;
+import com.bihell.dice.blog.service.message.EmailService;
 import com.bihell.dice.config.constant.DiceConsts;
 import com.bihell.dice.framework.common.service.impl.BaseServiceImpl;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
+import com.bihell.dice.framework.core.pagination.PageCursor;
 import com.bihell.dice.framework.core.pagination.PageInfo;
 import com.bihell.dice.framework.core.pagination.Paging;
 import com.bihell.dice.framework.util.DiceUtil;
+import com.bihell.dice.blog.utils.RenderUtil;
+import com.bihell.dice.blog.utils.CacheTagKeys;
+import com.bihell.dice.framework.cache.CacheTags;
 import com.bihell.dice.blog.utils.Types;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 评论 Service 实现类
  *
@@ -44,6 +60,14 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
 
     private final CommentMapper commentMapper;
 
+    private final ArticleMapper articleMapper;
+
+    private final CommentVoteService commentVoteService;
+
+    private final CacheTags cacheTags;
+
+    private final EmailService emailService;
+
     /**
      * 保存评论
      *
@@ -51,8 +75,26 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
      * @return
      */
     @Override
-    @CacheEvict(value = {COMMENT_CACHE_NAME, ArticleServiceImpl.ARTICLE_CACHE_NAME}, allEntries = true, beforeInvocation = true)
     public boolean save(Comment comment) {
+        checkComment(comment);
+
+        RenderUtil.renderComment(comment);
+        comment.insert();
+
+        // 增加文章的评论数
+        articleMapper.increaseCommentCount(comment.getArticleId(), 1);
+        cacheTags.evict(CacheTagKeys.comments(comment.getArticleId()), CacheTagKeys.article(comment.getArticleId()), CacheTagKeys.COMMENT_COUNT);
+        notifyComments(Collections.singletonList(comment));
+        return false;
+    }
+
+    /**
+     * 校验评论
+     *
+     * @param comment 评论entity
+     */
+    @Override
+    public void checkComment(Comment comment) {
         if (null == comment) {
             throw new TipException("评论对象为空");
         }
@@ -75,17 +117,67 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
             throw new TipException("网址长度不能超过" + DiceConsts.MAX_COMMENT_WEBSITE_COUNT);
         }
 
-        Article article = new Article().selectOne(new QueryWrapper<Article>().lambda().eq(Article::getId, comment.getArticleId()));
+        Article article = new Article().selectOne(new QueryWrapper<Article>().lambda()
+                .select(Article::getId).eq(Article::getId, comment.getArticleId()));
         if (null == article) {
             throw new TipException("无法查询到对应评论文章");
         }
+    }
 
-        comment.insert();
+    /**
+     * 批量保存评论
+     * <p>
+     * 一条 insert 写入所有评论,一条 update 增加各文章的评论数,每篇文章的缓存只失效一次,
+     * 邮件提醒在同一事务中写入发件箱
+     *
+     * @param comments 评论entity
+     */
+    @Override
+    public void saveComments(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return;
+        }
+        Map<Integer, Long> counts = new HashMap<>(16);
+        for (Comment comment : comments) {
+            RenderUtil.renderComment(comment);
+            counts.merge(comment.getArticleId(), 1L, Long::sum);
+        }
+        commentMapper.insertBatch(comments);
+        articleMapper.increaseCommentCounts(counts);
 
-        // 增加文章的评论数
-        article.setCommentCount(article.getCommentCount() + 1);
-        article.updateById();
-        return false;
+        List<String> tags = new ArrayList<>(counts.size() * 2 + 1);
+        for (Integer articleId : counts.keySet()) {
+            tags.add(CacheTagKeys.comments(articleId));
+            tags.add(CacheTagKeys.article(articleId));
+        }
+        tags.add(CacheTagKeys.COMMENT_COUNT);
+        cacheTags.evict(tags.toArray(new String[0]));
+        notifyComments(comments);
+    }
+
+    /**
+     * 新评论和回复的邮件提醒写入发件箱,父评论一次查询
+     *
+     * @param comments 已保存的评论
+     */
+    private void notifyComments(List<Comment> comments) {
+        Set<Integer> parentIds = new LinkedHashSet<>();
+        for (Comment comment : comments) {
+            if (null != comment.getPId() && -1 != comment.getPId()) {
+                parentIds.add(comment.getPId());
+            }
+        }
+        Map<Integer, Comment> parents = new HashMap<>(parentIds.size() * 4 / 3 + 1);
+        if (!parentIds.isEmpty()) {
+            commentMapper.selectBatchIds(parentIds).forEach(parent -> parents.put(parent.getId(), parent));
+        }
+        for (Comment comment : comments) {
+            emailService.sendEmailToAdmin(comment);
+            Comment parent = null == comment.getPId() ? null : parents.get(comment.getPId());
+            if (null != parent && !StringUtils.isEmpty(parent.getEmail())) {
+                emailService.sendEmailToUser(comment, parent.getEmail());
+            }
+        }
     }
 
     /**
@@ -97,7 +189,7 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
      * @return Page<Comment>
      */
     @Override
-    @Cacheable(value = COMMENT_CACHE_NAME, key = "'article_comments['+#current+':'+#limit+':'+#articleId+']'")
+    @Cacheable(value = COMMENT_CACHE_NAME, key = "@cacheTags.key('article_comments['+#current+':'+#limit+':'+#articleId+']', 'comments:'+#articleId)", sync = true)
     public IPage<Comment> getCommentsByArticleId(Integer current, Integer limit, Integer articleId) {
 
         Page<Comment> page = new Page<>(current, limit);
@@ -108,13 +200,78 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
         IPage<Comment> result = commentMapper.selectPage(page, wrapper);
 
         result.getRecords().forEach(comments -> {
-            String content = DiceUtil.contentTransform(comments.getContent(), false, true);
-            comments.setContent(content);
+            renderIfStale(comments);
+            comments.setContent(comments.getContentHtml());
         });
 
         return result;
     }
 
+    /**
+     * 游标获取文章下的评论
+     *
+     * @param cursor    上一页返回的游标,第一页为空
+     * @param limit     每页数量
+     * @param articleId 文章id
+     * @return CursorPaging<Comment>
+     */
+    @Override
+    @Cacheable(value = COMMENT_CACHE_NAME, key = "@cacheTags.key('article_comments_cursor['+#cursor+':'+#limit+':'+#articleId+']', 'comments:'+#articleId)", sync = true)
+    public CursorPaging<Comment> getCommentsByArticleId(String cursor, Integer limit, Integer articleId) {
+        limit = PageCursor.limit(limit);
+        Long lastId = PageCursor.decodeId(cursor);
+        List<Comment> comments = commentMapper.selectList(new QueryWrapper<Comment>().lambda()
+                .eq(Comment::getArticleId, articleId)
+                .eq(Comment::getStatus, Types.COMMENT_STATUS_NORMAL)
+                .gt(null != lastId, Comment::getId, lastId)
+                .orderByAsc(Comment::getId)
+                .last("LIMIT " + (limit + 1)));
+
+        comments.forEach(comment -> {
+            renderIfStale(comment);
+            comment.setContent(comment.getContentHtml());
+        });
+
+        return new CursorPaging<>(comments, limit, comment -> PageCursor.encode(comment.getId()));
+    }
+
+    /**
+     * 获取文章下的评论树
+     * <p>
+     * 一次查询文章下所有评论,按id顺序建立回复关系。父评论已删除的回复作为根评论显示
+     *
+     * @param articleId 文章id
+     * @return 根评论,回复在children中
+     */
+    @Override
+    @Cacheable(value = COMMENT_CACHE_NAME, key = "@cacheTags.key('article_comment_tree['+#articleId+']', 'comments:'+#articleId)", sync = true)
+    public List<CommentNode> getCommentTree(Integer articleId) {
+        List<Comment> comments = commentMapper.selectThread(articleId);
+        Map<Integer, CommentNode> nodes = new HashMap<>(comments.size() * 4 / 3 + 1);
+        List<CommentNode> roots = new ArrayList<>();
+        for (Comment comment : comments) {
+            renderIfStale(comment);
+            CommentNode node = new CommentNode()
+                    .setId(comment.getId())
+                    .setPId(comment.getPId())
+                    .setName(comment.getName())
+                    .setWebsite(comment.getWebsite())
+                    .setContent(comment.getContentHtml())
+                    .setAgree(comment.getAgree())
+                    .setDisagree(comment.getDisagree())
+                    .setCreateTime(comment.getCreateTime());
+            nodes.put(node.getId(), node);
+            // 按id排序,父评论一定在回复之前
+            CommentNode parent = null == comment.getPId() ? null : nodes.get(comment.getPId());
+            if (null == parent) {
+                roots.add(node);
+            } else {
+                parent.getChildren().add(node);
+            }
+        }
+        return roots;
+    }
+
     @Override
     public Paging<Comment> getCommentPageList(CommentPageParam commentPageParam) {
         Page<Comment> page = new PageInfo<>(commentPageParam, OrderItem.desc("create_time"));
@@ -124,8 +281,8 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
 
         IPage<Comment> result = commentMapper.selectPage(page, wrapper);
         result.getRecords().forEach(comments -> {
-            String content = DiceUtil.contentTransform(comments.getContent(), false, true);
-            comments.setContent(content);
+            renderIfStale(comments);
+            comments.setContent(comments.getContentHtml());
         });
         return new Paging<>(result);
     }
@@ -137,7 +294,7 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
      * @return CommentDto
      */
     @Override
-    @Cacheable(value = COMMENT_CACHE_NAME, key = "'comment_detail['+#id+']'")
+    @Cacheable(value = COMMENT_CACHE_NAME, key = "@cacheTags.key('comment_detail['+#id+']', 'comment:'+#id)")
     public CommentDto getCommentDetail(Integer id) {
         Comment entity = new Comment().selectById(id);
         if (null == entity) {
@@ -146,11 +303,14 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
         CommentDto comment = new CommentDto();
         BeanUtils.copyProperties(entity, comment);
         if (null != comment.getPId() && -1 != comment.getPId()) {
-            Comment pComment = new Comment().selectOne(new QueryWrapper<Comment>().lambda().eq(Comment::getPId, comment.getPId()));
+            Comment pComment = new Comment().selectById(comment.getPId());
             comment.setPComment(pComment);
         }
 
-        Article article = new Article().selectById(comment.getArticleId());
+        // 不需要文章内容
+        Article article = new Article().selectOne(new QueryWrapper<Article>().lambda()
+                .select(Article::getId, Article::getTitle, Article::getType, Article::getStatus)
+                .eq(Article::getId, comment.getArticleId()));
         comment.setArticle(article);
         return comment;
     }
@@ -162,54 +322,41 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
      * @return 删除是否成功
      */
     @Override
-    @CacheEvict(value = COMMENT_CACHE_NAME, allEntries = true, beforeInvocation = true)
     public boolean deleteComment(Integer id) {
         Comment comment = new Comment().selectById(id);
         if (null == comment) {
             throw new TipException("不存在该评论");
         }
 
-        // 减去文章中评论数
-        Article article = new Article().selectById(comment.getArticleId());
-        article.setCommentCount(article.getCommentCount() - 1);
-        article.updateById();
-
-        // 去除子评论中关联
-        Comment childComment = new Comment().selectById(id);
-        if (null != childComment) {
-            childComment.setPId(null);
-            childComment.updateById();
-        }
-        comment.setStatus(Types.COMMENT_STATUS_DELETE);
-        if (comment.updateById()) {
-            log.info("删除评论: {}", comment);
+        // 只有把状态从正常改为删除的请求才减去文章中评论数,并发删除时不会重复减
+        if (commentMapper.markDeleted(id) == 0) {
+            // 评论已经是删除状态
             return true;
         }
-        return false;
+        articleMapper.increaseCommentCount(comment.getArticleId(), -1);
+        cacheTags.evict(CacheTagKeys.comments(comment.getArticleId()), CacheTagKeys.comment(id),
+                CacheTagKeys.article(comment.getArticleId()), CacheTagKeys.COMMENT_COUNT);
+        log.info("删除评论: {}", comment);
+        return true;
     }
 
     /**
-     * 顶或踩评论
+     * 顶或踩评论,由 {@link CommentVoteService} 累计后批量写入
      *
      * @param commentId 评论给id
      * @param assess    {@link Types#AGREE},{@link Types#DISAGREE}
      */
     @Override
-    @CacheEvict(value = COMMENT_CACHE_NAME, allEntries = true, beforeInvocation = true)
     public void assessComment(Integer commentId, String assess) {
-        Comment comment = new Comment().selectById(commentId);
+        if (!Types.AGREE.equals(assess) && !Types.DISAGREE.equals(assess)) {
+            throw new TipException("assess参数错误");
+        }
+        Comment comment = new Comment().selectOne(new QueryWrapper<Comment>().lambda()
+                .select(Comment::getId, Comment::getArticleId).eq(Comment::getId, commentId));
         if (null == comment) {
             throw new TipException("没有该评论");
         }
-
-        if (Types.AGREE.equals(assess)) {
-            comment.setAgree(comment.getAgree() + 1);
-        } else if (Types.DISAGREE.equals(assess)) {
-            comment.setDisagree(comment.getDisagree() + 1);
-        } else {
-            throw new TipException("assess参数错误");
-        }
-        comment.updateById();
+        commentVoteService.vote(commentId, comment.getArticleId(), Types.AGREE.equals(assess));
     }
 
     /**
@@ -218,9 +365,21 @@ public class CommentServiceImpl extends BaseServiceImpl<CommentMapper, Comment>
      * @return 数量
      */
     @Override
-    @Cacheable(value = COMMENT_CACHE_NAME, key = "'comment_count'")
+    @Cacheable(value = COMMENT_CACHE_NAME, key = "@cacheTags.key('comment_count', 'comments')")
     public long count() {
         return commentMapper.selectCount(new QueryWrapper<Comment>().lambda().eq(Comment::getStatus, Types.COMMENT_STATUS_NORMAL));
     }
 
+    /**
+     * 渲染结果为空或渲染版本过期时重新渲染并保存
+     *
+     * @param comment 评论entity
+     */
+    private void renderIfStale(Comment comment) {
+        if (!DiceUtil.isRenderStale(comment.getRenderVersion())) {
+            return;
+        }
+        RenderUtil.renderComment(comment);
+        commentMapper.updateRendered(comment);
+    }
 }
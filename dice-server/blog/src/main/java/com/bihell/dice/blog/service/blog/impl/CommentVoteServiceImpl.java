@@ -0,0 +1,153 @@
+package com.bihell.dice.blog.service.blog.impl;
+
+import com.bihell.dice.blog.mapper.blogs.CommentMapper;
+import com.bihell.dice.blog.service.blog.CommentVoteService;
+import com.bihell.dice.blog.utils.CacheTagKeys;
+import com.bihell.dice.config.properties.DiceVotesProperties;
+import com.bihell.dice.framework.cache.CacheTags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 评论顶踩 Service 实现类
+ * <p>
+ * 顶踩先累计在内存中,定时批量写入数据库,每次写入后只让涉及的评论缓存失效一次。
+ * 计数和取出都在 ConcurrentHashMap 的 compute/remove 中执行,取出后的计数器不会再被修改,并发的顶踩不会丢失
+ *
+ * @author bihell
+ */
+@Slf4j
+@Service("commentVoteService")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class CommentVoteServiceImpl implements CommentVoteService {
+
+    private final CommentMapper commentMapper;
+    private final CacheTags cacheTags;
+    private final DiceVotesProperties votesProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Integer, Votes> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public void vote(Integer commentId, Integer articleId, boolean agree) {
+        counters.compute(commentId, (k, votes) -> {
+            if (null == votes) {
+                votes = new Votes(articleId);
+            }
+            if (agree) {
+                votes.agree++;
+            } else {
+                votes.disagree++;
+            }
+            return votes;
+        });
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${dice.votes.flush-interval:5000}")
+    public synchronized long flush() {
+        Map<Integer, Votes> deltas = drainCounters();
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        try {
+            return write(deltas);
+        } catch (Exception e) {
+            log.error("写入评论顶踩失败", e);
+            // 放回内存等待下次写入
+            deltas.forEach((id, delta) -> counters.merge(id, delta, Votes::add));
+            return 0;
+        }
+    }
+
+    /**
+     * 关闭时写入还未保存的顶踩
+     */
+    @PreDestroy
+    public void shutdown() {
+        long count = flush();
+        log.info("关闭前写入评论顶踩: {}", count);
+    }
+
+    /**
+     * 取出内存中累计的顶踩,取出的计数器从 map 中移除,之后的顶踩计入新的计数器
+     */
+    private Map<Integer, Votes> drainCounters() {
+        Map<Integer, Votes> deltas = new HashMap<>(counters.size() * 4 / 3 + 1);
+        for (Integer id : counters.keySet()) {
+            Votes votes = counters.remove(id);
+            if (null != votes) {
+                deltas.put(id, votes);
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 在一个事务中分批写入数据库,提交后让涉及的评论缓存失效。
+     * 失败时所有批次一起回滚,放回内存的顶踩不会重复计入
+     */
+    private long write(Map<Integer, Votes> deltas) {
+        Set<String> tags = new LinkedHashSet<>();
+        Long total = transactionTemplate.execute(status -> writeBatches(deltas, tags));
+        cacheTags.evict(tags.toArray(new String[0]));
+        log.debug("写入评论顶踩, 评论: {}, 顶踩: {}", deltas.size(), total);
+        return null == total ? 0 : total;
+    }
+
+    private long writeBatches(Map<Integer, Votes> deltas, Set<String> tags) {
+        long total = 0;
+        List<Map.Entry<Integer, Votes>> entries = new ArrayList<>(deltas.entrySet());
+        int batchSize = votesProperties.getBatchSize();
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            Map<Integer, Long> agree = new LinkedHashMap<>(batchSize * 4 / 3 + 1);
+            Map<Integer, Long> disagree = new LinkedHashMap<>(batchSize * 4 / 3 + 1);
+            for (Map.Entry<Integer, Votes> entry : entries.subList(i, Math.min(i + batchSize, entries.size()))) {
+                Votes votes = entry.getValue();
+                agree.put(entry.getKey(), votes.agree);
+                disagree.put(entry.getKey(), votes.disagree);
+                total += votes.agree + votes.disagree;
+                tags.add(CacheTagKeys.comments(votes.articleId));
+                tags.add(CacheTagKeys.comment(entry.getKey()));
+            }
+            commentMapper.increaseAssess(agree, disagree);
+        }
+        return total;
+    }
+
+    /**
+     * 一条评论累计的顶和踩,只在 map 的 compute/merge 中或从 map 移除后修改
+     */
+    private static class Votes {
+
+        private final Integer articleId;
+
+        private long agree;
+
+        private long disagree;
+
+        private Votes(Integer articleId) {
+            this.articleId = articleId;
+        }
+
+        private Votes add(Votes other) {
+            agree += other.agree;
+            disagree += other.disagree;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.bihell.dice.blog.service.blog.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.bihell.dice.blog.mapper.blogs.MetaMapper;
+import com.bihell.dice.blog.model.blog.Meta;
+import com.bihell.dice.framework.util.TransactionUtil;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 属性字典,按属性类型缓存 属性名 -> 属性id
+ * <p>
+ * 属性写入后在事务提交时失效,其他节点的字典依靠过期时间刷新
+ *
+ * @author bihell
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class MetaDictionary {
+
+    private static final long EXPIRE_MINUTES = 10;
+
+    private final MetaMapper metaMapper;
+
+    private final LoadingCache<String, Map<String, Integer>> dictionaries = Caffeine.newBuilder()
+            .expireAfterWrite(EXPIRE_MINUTES, TimeUnit.MINUTES)
+            .build(this::load);
+
+    /**
+     * 获取属性字典
+     *
+     * @param type 属性类型
+     * @return 只读的 属性名 -> 属性id
+     */
+    Map<String, Integer> get(String type) {
+        return dictionaries.get(type);
+    }
+
+    /**
+     * 事务提交后使该类型的字典失效
+     *
+     * @param type 属性类型
+     */
+    void invalidate(String type) {
+        TransactionUtil.afterCommit(() -> dictionaries.invalidate(type));
+    }
+
+    private Map<String, Integer> load(String type) {
+        List<Meta> metas = metaMapper.selectList(new QueryWrapper<Meta>().lambda()
+                .select(Meta::getId, Meta::getName)
+                .eq(Meta::getType, type));
+        Map<String, Integer> dictionary = new HashMap<>(metas.size() * 4 / 3 + 1);
+        for (Meta meta : metas) {
+            dictionary.put(meta.getName(), meta.getId());
+        }
+        return Collections.unmodifiableMap(dictionary);
+    }
+}
@@ -7,20 +7,33 @@ import com.bihell.dice.blog.mapper.blogs.MiddleMapper;
 import com.bihell.dice.blog.model.blog.Article;
 import com.bihell.dice.blog.model.blog.Meta;
 import com.bihell.dice.blog.model.blog.Middle;
+import com.bihell.dice.blog.model.dto.ArticleInfoDto;
+import com.bihell.dice.blog.model.dto.MetaArticleDto;
 import com.bihell.dice.blog.model.dto.MetaDto;
 import com.bihell.dice.framework.common.exception.TipException;
 import com.bihell.dice.blog.service.blog.MetaService;
+import com.bihell.dice.blog.service.search.SearchService;
 import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.blog.utils.CacheTagKeys;
+import com.bihell.dice.framework.cache.CacheTags;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * 属性 Service 实现类
@@ -33,12 +46,25 @@ import java.util.Set;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class MetaServiceImpl implements MetaService {
 
+    /**
+     * 批量修改文章属性时每批的文章数量
+     */
+    private static final int META_BATCH_SIZE = 500;
+
     private final MetaMapper metaMapper;
 
     private final ArticleMapper articleMapper;
 
     private final MiddleMapper middleMapper;
 
+    private final TransactionTemplate transactionTemplate;
+
+    private final MetaDictionary metaDictionary;
+
+    private final SearchService searchService;
+
+    private final CacheTags cacheTags;
+
     /**
      * 根据属性以及属性下的已发布文章
      *
@@ -46,9 +72,27 @@ public class MetaServiceImpl implements MetaService {
      * @return List<MetaDto>
      */
     @Override
+    @Cacheable(value = ArticleServiceImpl.ARTICLE_CACHE_NAME, key = "@cacheTags.key('publish_metas['+#type+']', 'list:articles')", sync = true)
     public List<MetaDto> getPublishMetaDtos(String type) {
         type = verifyType(type);
-        return metaMapper.selectPublishMetaDtos(type);
+        Map<Integer, MetaDto> metaDtos = new LinkedHashMap<>();
+        for (MetaArticleDto row : metaMapper.selectPublishMetaArticles(type)) {
+            MetaDto metaDto = metaDtos.get(row.getMetaId());
+            if (null == metaDto) {
+                metaDto = new MetaDto().setCount(0).setArticles(new ArrayList<>());
+                metaDto.setId(row.getMetaId()).setName(row.getMetaName()).setType(row.getMetaType());
+                metaDtos.put(row.getMetaId(), metaDto);
+            }
+            if (null != row.getArticleId()) {
+                metaDto.getArticles().add(new ArticleInfoDto()
+                        .setId(row.getArticleId())
+                        .setTitle(row.getTitle())
+                        .setTags(row.getTags())
+                        .setCategory(row.getCategory()));
+                metaDto.setCount(metaDto.getCount() + 1);
+            }
+        }
+        return new ArrayList<>(metaDtos.values());
     }
 
     /**
@@ -60,7 +104,11 @@ public class MetaServiceImpl implements MetaService {
     @Override
     public List<MetaDto> getMetaDtos(String type, String title, String snippetFileContent) {
         type = verifyType(type);
-        return metaMapper.selectMetaDtos(type, title, snippetFileContent);
+        List<Integer> snippetIds = null;
+        if (!StringUtils.isEmpty(snippetFileContent) && searchService.isEnabled()) {
+            snippetIds = searchService.searchIds(snippetFileContent, Types.SNIPPET);
+        }
+        return metaMapper.selectMetaDtos(type, title, snippetFileContent, snippetIds);
     }
 
     /**
@@ -71,29 +119,17 @@ public class MetaServiceImpl implements MetaService {
      * @return boolean
      */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean deleteMeta(String name, String type) {
         type = verifyType(type);
         Meta meta = new Meta().selectOne(new QueryWrapper<Meta>().lambda().eq(Meta::getName, name).eq(Meta::getType, type));
         if (null == meta) {
             throw new TipException("没有该名称的属性");
         }
-        List<Middle> middles = new Middle().selectList(new QueryWrapper<Middle>().lambda().eq(Middle::getMId, meta.getId()));
-        // todo 批量更新
-        for (Middle middle : middles) {
-            Article article = new Article().selectById(middle.getAId());
-            if (null != article) {
-                if (type.equals(Types.CATEGORY)) {
-                    article.setCategory("");
-                }
-                if (type.equals(Types.TAG)) {
-                    article.setTags(this.resetMeta(name, article.getTags()));
-                }
-                article.insertOrUpdate();
-            }
-        }
-
-        new Middle().delete(new QueryWrapper<Middle>().lambda().eq(Middle::getMId, meta.getId()));
+        rewriteArticleMetas(meta, "", true);
         meta.deleteById();
+        metaDictionary.invalidate(type);
+        cacheTags.evict(CacheTagKeys.ARTICLES, CacheTagKeys.ARTICLE_LIST);
         return true;
     }
 
@@ -117,7 +153,10 @@ public class MetaServiceImpl implements MetaService {
             throw new TipException("该属性已经存在");
         }
 
-        return metaMapper.insert(metas) > 0;
+        boolean result = metaMapper.insert(metas) > 0;
+        metaDictionary.invalidate(type);
+        cacheTags.evict(CacheTagKeys.ARTICLE_LIST);
+        return result;
     }
 
     /**
@@ -129,6 +168,7 @@ public class MetaServiceImpl implements MetaService {
      * @return boolean
      */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean updateMeta(Integer id, String name, String type) {
         if (StringUtils.isEmpty(name)) {
             throw new TipException("属性名不能为空");
@@ -139,29 +179,19 @@ public class MetaServiceImpl implements MetaService {
             throw new TipException("没有该属性");
         }
 
-        List<Article> articles = articleMapper.selectByMeta(id);
-        // todo 批量更新
-        for (Article article : articles) {
-            String metas;
-            if (type.equals(Types.CATEGORY)) {
-                metas = article.getCategory();
-                String newMetas = metas.replace(meta.getName(), name);
-                if (!newMetas.equals(metas)) {
-                    article.setCategory(newMetas);
-                    article.insertOrUpdate();
-                }
-            }
-            if (type.equals(Types.TAG)) {
-                metas = article.getTags();
-                String newMetas = metas.replace(meta.getName(), name);
-                if (!newMetas.equals(metas)) {
-                    article.setTags(newMetas);
-                    article.insertOrUpdate();
-                }
+        if (!name.equals(meta.getName())) {
+            Meta exist = new Meta().selectOne(new QueryWrapper<Meta>().lambda()
+                    .eq(Meta::getType, type).eq(Meta::getName, name).ne(Meta::getId, id));
+            if (null != exist) {
+                throw new TipException("该属性已经存在");
             }
+            rewriteArticleMetas(meta, name, false);
         }
         meta.setName(name);
-        return meta.insertOrUpdate();
+        boolean result = meta.insertOrUpdate();
+        metaDictionary.invalidate(type);
+        cacheTags.evict(CacheTagKeys.ARTICLES, CacheTagKeys.ARTICLE_LIST);
+        return result;
     }
 
     /**
@@ -179,60 +209,177 @@ public class MetaServiceImpl implements MetaService {
             throw new TipException("关联文章id不能为空");
         }
 
-        removeMetas(names, type, articleId);
-        saveMetas(names, type, articleId);
+        if (null == names) {
+            return true;
+        }
+
+        Set<String> nameSet = new LinkedHashSet<>();
+        for (String name : names.split(",")) {
+            if (!StringUtils.isEmpty(name)) {
+                nameSet.add(name);
+            }
+        }
+
+        // 计算文章已关联属性和names的差异,和数据库一样忽略大小写
+        Map<String, Integer> linked = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Meta meta : metaMapper.selectByArticle(articleId, type)) {
+            linked.put(meta.getName(), meta.getId());
+        }
+        Set<String> nameKeys = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        nameKeys.addAll(nameSet);
+        List<Integer> removeIds = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : linked.entrySet()) {
+            if (!nameKeys.contains(entry.getKey())) {
+                removeIds.add(entry.getValue());
+            }
+        }
+        Set<String> addNames = new LinkedHashSet<>(nameSet);
+        addNames.removeIf(linked::containsKey);
+
+        if (!removeIds.isEmpty()) {
+            middleMapper.delete(new QueryWrapper<Middle>().lambda()
+                    .eq(Middle::getAId, articleId)
+                    .in(Middle::getMId, removeIds));
+        }
+        List<Integer> addIds = addNames.isEmpty() ? Collections.emptyList() : resolveMetaIds(addNames, type);
+        if (!addIds.isEmpty()) {
+            middleMapper.insertBatch(articleId, addIds);
+        }
         return true;
     }
 
     /**
-     * 添加names新加的属性到数据库
+     * 根据属性名获取属性id,不存在的属性批量新建
+     * <p>
+     * 本地字典中没有的属性名先查询数据库(其他节点或并发事务可能已经新建,按数据库排序规则忽略大小写),
+     * 仍然没有的用 INSERT IGNORE 新建,依靠 (type, name) 唯一索引避免重复
      *
-     * @param names
-     * @param type
-     * @param articleId
+     * @param names 属性名
+     * @param type  属性类型
+     * @return List<Integer>
      */
-    private void saveMetas(String names, String type, Integer articleId) {
-        List<Meta> metas = metaMapper.selectByArticle(articleId, type);
-        Set<String> metaSet = new HashSet<>();
-        for (Meta meta : metas) {
-            metaSet.add(meta.getName());
-        }
-        String[] nameArr = names.split(",");
-        for (String name : nameArr) {
-            if (StringUtils.isEmpty(name)) {
-                continue;
+    private List<Integer> resolveMetaIds(Set<String> names, String type) {
+        Map<String, Integer> dictionary = metaDictionary.get(type);
+        Set<String> newNames = new LinkedHashSet<>();
+        for (String name : names) {
+            if (!dictionary.containsKey(name)) {
+                newNames.add(name);
             }
-            if (!metaSet.contains(name)) {
-                Meta newMeta = new Meta();
-                newMeta.setName(name);
-                newMeta.setType(type);
-                Meta meta = new Meta().selectOne(new QueryWrapper<Meta>().lambda().eq(Meta::getName, name).eq(Meta::getType, type));
-                if (null == meta) {
-                    newMeta.insert();
-                } else {
-                    newMeta = meta;
+        }
+
+        // 和数据库的排序规则一致,名称只有大小写不同时视为同一个属性
+        Map<String, Integer> found = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (!newNames.isEmpty()) {
+            selectMetaIds(type, newNames, found);
+            Set<String> missing = new LinkedHashSet<>();
+            for (String name : newNames) {
+                if (!found.containsKey(name)) {
+                    missing.add(name);
                 }
-                middleMapper.insert(new Middle().setAId(articleId).setMId(newMeta.getId()));
+            }
+            if (!missing.isEmpty()) {
+                metaMapper.insertBatch(type, missing);
+                selectMetaIds(type, missing, found);
+            }
+            // 提交后才失效,见 MetaDictionary#invalidate
+            metaDictionary.invalidate(type);
+        }
+
+        Set<Integer> ids = new LinkedHashSet<>(names.size() * 4 / 3 + 1);
+        for (String name : names) {
+            Integer id = dictionary.containsKey(name) ? dictionary.get(name) : found.get(name);
+            if (null != id) {
+                ids.add(id);
             }
         }
+        return new ArrayList<>(ids);
     }
 
     /**
-     * 从数据库中删除names属性中没有的
+     * 查询属性名对应的id
      *
-     * @param names
-     * @param type
-     * @param articleId
+     * @param type  属性类型
+     * @param names 属性名
+     * @param found 查询结果
      */
-    private void removeMetas(String names, String type, Integer articleId) {
-        String[] nameArr = names.split(",");
-        Set<String> nameSet = new HashSet<>(Arrays.asList(nameArr));
-        List<Meta> metas = metaMapper.selectByArticle(articleId, type);
+    private void selectMetaIds(String type, Set<String> names, Map<String, Integer> found) {
+        List<Meta> metas = metaMapper.selectList(new QueryWrapper<Meta>().lambda()
+                .select(Meta::getId, Meta::getName)
+                .eq(Meta::getType, type)
+                .in(Meta::getName, names));
         for (Meta meta : metas) {
-            if (!nameSet.contains(meta.getName())) {
-                middleMapper.delete(new QueryWrapper<Middle>().lambda()
-                        .eq(Middle::getAId, articleId)
-                        .eq(Middle::getMId, meta.getId()));
+            found.put(meta.getName(), meta.getId());
+        }
+    }
+
+    /**
+     * 分批修改属性关联文章的属性字段,每批在单独的事务中执行,避免长时间锁住文章表
+     *
+     * @param meta    属性
+     * @param newName 新属性名,为空字符串时从文章中移除该属性
+     * @param unlink  是否同时删除文章和属性的关联
+     */
+    private void rewriteArticleMetas(Meta meta, String newName, boolean unlink) {
+        String column = Types.CATEGORY.equals(meta.getType()) ? "category" : "tags";
+        Integer afterId = 0;
+        List<Integer> articleIds;
+        do {
+            articleIds = middleMapper.selectArticleIdsByMeta(meta.getId(), afterId, META_BATCH_SIZE);
+            if (articleIds.isEmpty()) {
+                break;
+            }
+            List<Integer> batch = articleIds;
+            transactionTemplate.executeWithoutResult(status -> {
+                replaceArticleMetaName(column, meta.getName(), newName, batch);
+                if (unlink) {
+                    middleMapper.delete(new QueryWrapper<Middle>().lambda()
+                            .eq(Middle::getMId, meta.getId())
+                            .in(Middle::getAId, batch));
+                }
+            });
+            afterId = articleIds.get(articleIds.size() - 1);
+        } while (articleIds.size() == META_BATCH_SIZE);
+
+        if (unlink) {
+            // 清理分批过程中新增的关联
+            middleMapper.delete(new QueryWrapper<Middle>().lambda().eq(Middle::getMId, meta.getId()));
+        }
+    }
+
+    /**
+     * 替换或移除文章属性字段中的一个属性。
+     * 属性名和数据库一样不区分大小写匹配,文章中保存的可能是大小写不同的写法,所以在内存中逐个比较后写回
+     *
+     * @param column  属性字段名,tags 或 category
+     * @param oldName 原属性名
+     * @param newName 新属性名,为空字符串时移除该属性
+     * @param ids     文章id
+     */
+    private void replaceArticleMetaName(String column, String oldName, String newName, List<Integer> ids) {
+        boolean isCategory = "category".equals(column);
+        List<Article> articles = articleMapper.selectList(new QueryWrapper<Article>().lambda()
+                .select(Article::getId, isCategory ? Article::getCategory : Article::getTags)
+                .in(Article::getId, ids)
+                .last("FOR UPDATE"));
+        for (Article article : articles) {
+            String value = isCategory ? article.getCategory() : article.getTags();
+            if (StringUtils.isEmpty(value)) {
+                continue;
+            }
+            Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            List<String> result = new ArrayList<>();
+            boolean changed = false;
+            for (String name : value.split(",")) {
+                if (name.equalsIgnoreCase(oldName)) {
+                    changed = true;
+                    name = newName;
+                }
+                if (!StringUtils.isEmpty(name) && names.add(name)) {
+                    result.add(name);
+                }
+            }
+            if (changed) {
+                articleMapper.updateMetaColumn(column, String.join(",", result), article.getId());
             }
         }
     }
@@ -255,25 +402,4 @@ public class MetaServiceImpl implements MetaService {
         }
     }
 
-    /**
-     * 从属性字符串中去除一个属性
-     *
-     * @param name
-     * @param metas
-     * @return
-     */
-    private String resetMeta(String name, String metas) {
-        String[] metaArr = metas.split(",");
-        StringBuffer sb = new StringBuffer();
-        for (String m : metaArr) {
-            if (!name.equals(m)) {
-                sb.append(",").append(m);
-            }
-        }
-        if (sb.length() > 0) {
-            return sb.substring(1);
-        }
-        return "";
-    }
-
 }
@@ -5,7 +5,9 @@ import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.bihell.dice.blog.model.blog.SysOption;
 import com.bihell.dice.blog.service.blog.OptionService;
 import com.bihell.dice.framework.util.DiceUtil;
+import com.bihell.dice.blog.utils.CacheTagKeys;
 import com.bihell.dice.blog.utils.OptionKeys;
+import com.bihell.dice.framework.cache.CacheTags;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
@@ -33,10 +35,13 @@ public class OptionServiceImpl implements OptionService {
 
     private final ApplicationContext applicationContext;
 
+    private final CacheTags cacheTags;
+
 
     public OptionServiceImpl(
-            ApplicationContext applicationContext) {
+            ApplicationContext applicationContext, CacheTags cacheTags) {
         this.applicationContext = applicationContext;
+        this.cacheTags = cacheTags;
     }
 
     /**
@@ -100,6 +105,7 @@ public class OptionServiceImpl implements OptionService {
             record.setOptionValue(value);
             record.insert();
         }
+        cacheTags.evict(CacheTagKeys.OPTIONS);
     }
 
     /**
@@ -119,7 +125,7 @@ public class OptionServiceImpl implements OptionService {
      * @return Map
      */
     @Override
-    @Cacheable(value = OPTION_CACHE_NAME, key = "'front_options'")
+    @Cacheable(value = OPTION_CACHE_NAME, key = "'front_options'", sync = true)
     public Map<String, String> getFrontOptionMap() {
         Map<String, String> frontOptions = new HashMap<>(16);
         Map<String, String> allOptions = getAllOptionMap();
@@ -0,0 +1,107 @@
+package com.bihell.dice.blog.service.message;
+
+import com.bihell.dice.blog.model.system.MailOutbox;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * 复用的邮件发送器
+ * <p>
+ * 邮件配置不变时复用同一个 {@link JavaMailSenderImpl},一批邮件共用一个SMTP连接发送
+ *
+ * @author bihell
+ */
+public class CachedMailSender {
+
+    private JavaMailSenderImpl sender;
+
+    private List<Object> config;
+
+    /**
+     * 更新邮件配置,配置变化时才重建发送器
+     *
+     * @param host     主机名
+     * @param port     端口
+     * @param username 用户名,同时作为发件人
+     * @param password 密码
+     * @param timeout  连接和读写超时时间(毫秒)
+     * @return 是否重建了发送器
+     */
+    public synchronized boolean configure(String host, Integer port, String username, String password, Integer timeout) {
+        List<Object> newConfig = Arrays.asList(host, port, username, password, timeout);
+        if (null != sender && newConfig.equals(config)) {
+            return false;
+        }
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost(host);
+        mailSender.setPort(port);
+        mailSender.setUsername(username);
+        mailSender.setPassword(password);
+        mailSender.setDefaultEncoding("UTF-8");
+        Properties properties = new Properties();
+        properties.setProperty("mail.smtp.connectiontimeout", String.valueOf(timeout));
+        properties.setProperty("mail.smtp.timeout", String.valueOf(timeout));
+        properties.setProperty("mail.smtp.writetimeout", String.valueOf(timeout));
+        mailSender.setJavaMailProperties(properties);
+        sender = mailSender;
+        config = newConfig;
+        return true;
+    }
+
+    /**
+     * 用一个SMTP连接发送一批邮件
+     *
+     * @param mails 待发送的邮件
+     * @return 发送失败的邮件id和原因,全部成功时为空
+     */
+    public synchronized Map<Integer, Exception> send(List<MailOutbox> mails) {
+        if (null == sender) {
+            throw new IllegalStateException("邮件发送器未配置");
+        }
+        Map<Integer, Exception> failures = new HashMap<>(16);
+        Map<MimeMessage, Integer> messageIds = new IdentityHashMap<>(mails.size());
+        List<MimeMessage> messages = new ArrayList<>(mails.size());
+        for (MailOutbox mail : mails) {
+            try {
+                MimeMessage mimeMessage = sender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+                helper.setFrom(sender.getUsername());
+                helper.setTo(mail.getRecipient());
+                helper.setSubject(mail.getSubject());
+                helper.setText(mail.getContent(), true);
+                messages.add(mimeMessage);
+                messageIds.put(mimeMessage, mail.getId());
+            } catch (MessagingException e) {
+                failures.put(mail.getId(), e);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failures;
+        }
+        try {
+            sender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // 连接失败时所有邮件都在 failedMessages 中
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages.isEmpty()) {
+                messageIds.values().forEach(id -> failures.put(id, e));
+            }
+            failedMessages.forEach((message, ex) -> failures.put(messageIds.get(message), ex));
+        } catch (MailException e) {
+            messageIds.values().forEach(id -> failures.put(id, e));
+        }
+        return failures;
+    }
+}
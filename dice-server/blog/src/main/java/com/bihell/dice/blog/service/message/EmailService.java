@@ -4,6 +4,8 @@ import com.bihell.dice.blog.model.blog.Comment;
 
 /**
  * 发送邮件 Service 接口
+ * <p>
+ * 邮件先写入发件箱,由后台任务分批发送
  *
  * @author bihell
  * @since 2018/4/9 15:51
@@ -11,17 +13,24 @@ import com.bihell.dice.blog.model.blog.Comment;
 public interface EmailService {
 
     /**
-     * 发送邮件给管理员
+     * 发送邮件给管理员,加入调用方的事务,开启摘要时合并发送
      *
      * @param comment 回复的Comment信息
      */
     void sendEmailToAdmin(Comment comment);
 
     /**
-     * 发送邮件给被评论的用户
+     * 发送邮件给被评论的用户,加入调用方的事务
      *
      * @param comment   评论的Comment信息
      * @param replyEmail 被评论人邮箱
      */
     void sendEmailToUser(Comment comment, String replyEmail);
+
+    /**
+     * 发送发件箱中到期的邮件,失败的按指数退避重试
+     *
+     * @return 发送成功的数量
+     */
+    int sendPending();
 }
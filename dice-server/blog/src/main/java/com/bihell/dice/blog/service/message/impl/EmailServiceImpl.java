@@ -1,32 +1,45 @@
 package com.bihell.dice.blog.service.message.impl;
 
+import com.bihell.dice.blog.mapper.system.MailOutboxMapper;
 import com.bihell.dice.blog.model.blog.Comment;
 import com.bihell.dice.blog.model.system.LogType;
+import com.bihell.dice.blog.model.system.MailOutbox;
+import com.bihell.dice.blog.service.message.CachedMailSender;
 import com.bihell.dice.blog.service.message.EmailService;
 import com.bihell.dice.blog.service.system.LogService;
 import com.bihell.dice.blog.service.blog.OptionService;
+import com.bihell.dice.blog.utils.MailTemplate;
+import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.CommonRedisKey;
 import com.bihell.dice.config.constant.DiceConsts;
 import com.bihell.dice.blog.utils.OptionKeys;
+import com.bihell.dice.config.properties.DiceMailProperties;
+import com.bihell.dice.framework.common.service.RedisService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.mail.MailSender;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
-import java.util.Date;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 发送邮件 Service 实现类
+ * <p>
+ * 邮件和评论在同一事务中写入 mail_outbox,定时任务拿到锁后分批发送,
+ * 邮件配置不变时复用发送器,一批邮件共用一个SMTP连接。
+ * 开启摘要时,发送给管理员的评论提醒先暂存,攒够数量或超过合并时间后合并成一封邮件
  *
  * @author bihell
  * @since 2018/4/9 15:52
@@ -37,115 +50,252 @@ import java.util.Map;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class EmailServiceImpl implements EmailService {
 
+    /**
+     * 失败原因保存的最大长度
+     */
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final MailTemplate ADMIN_TEMPLATE = MailTemplate.compile(DiceConsts.EMAIL_TEMPLATE_ADMIN);
+
+    private static final MailTemplate USER_TEMPLATE = MailTemplate.compile(DiceConsts.EMAIL_TEMPLATE_USER);
+
+    private static final MailTemplate ADMIN_DIGEST_TEMPLATE = MailTemplate.compile(DiceConsts.EMAIL_TEMPLATE_ADMIN_DIGEST);
+
+    private static final MailTemplate ADMIN_DIGEST_ITEM_TEMPLATE = MailTemplate.compile(DiceConsts.EMAIL_TEMPLATE_ADMIN_DIGEST_ITEM);
+
     private final OptionService optionService;
 
     private final LogService logService;
 
+    private final MailOutboxMapper mailOutboxMapper;
+
+    private final RedisService redisService;
+
+    private final DiceMailProperties mailProperties;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final CachedMailSender mailSender = new CachedMailSender();
+
+    private final String nodeId = UUID.randomUUID().toString();
+
     private static String LOG_MESSAGE_SEND_EMAIL_SUCCESS = "发送邮件成功";
     private static String LOG_MESSAGE_SEND_EMAIL_FAIL = "发送邮件失败";
 
     @Override
-    @Async
     public void sendEmailToAdmin(Comment comment) {
         if (!isEmail(comment.getEmail())) {
             return;
         }
 
         Map<String, String> params = getEmailParams(comment);
-        String content = DiceConsts.getEmailTemplateAdminContent(params);
-
-        String logData = content + ";  发送给管理员";
-        log.info("sendEmailToAdmin start: {}", new Date());
-        try {
-            String emailUsername = optionService.get(OptionKeys.EMAIL_USERNAME);
-            sendEmail(content, emailUsername);
-            logService.save(logData, LOG_MESSAGE_SEND_EMAIL_SUCCESS, LogType.EMAIL);
-        } catch (Exception e) {
-            logService.save(logData, LOG_MESSAGE_SEND_EMAIL_FAIL, LogType.EMAIL);
-            log.error(e.getMessage());
+        String adminEmail = optionService.get(OptionKeys.EMAIL_USERNAME);
+        if (mailProperties.isDigestEnable()) {
+            enqueue(adminEmail, ADMIN_DIGEST_ITEM_TEMPLATE.render(params), Types.MAIL_STATUS_DIGEST);
+        } else {
+            enqueue(adminEmail, ADMIN_TEMPLATE.render(params), Types.MAIL_STATUS_PENDING);
         }
     }
 
     @Override
-    @Async
     public void sendEmailToUser(Comment comment, String replyEmail) {
         if (!isEmail(replyEmail)) {
             return;
         }
 
         Map<String, String> params = getEmailParams(comment);
-        String content = DiceConsts.getEmailTemplateUserContent(params);
+        enqueue(replyEmail, USER_TEMPLATE.render(params), Types.MAIL_STATUS_PENDING);
+    }
 
-        String logData = content + ";  发送给:" + replyEmail;
-        log.info("sendEmailToUser start: {}", new Date());
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Scheduled(fixedDelayString = "${dice.mail.interval:5000}")
+    public int sendPending() {
+        if (!redisService.setIfAbsent(CommonRedisKey.MAIL_OUTBOX_LOCK, nodeId,
+                mailProperties.getLockTimeout(), TimeUnit.SECONDS)) {
+            return 0;
+        }
+        int total = 0;
         try {
-            sendEmail(content, replyEmail);
-            logService.save(logData, LOG_MESSAGE_SEND_EMAIL_SUCCESS, LogType.EMAIL);
+            flushDigests();
+            List<MailOutbox> mails;
+            do {
+                mails = mailOutboxMapper.selectPending(LocalDateTime.now(), mailProperties.getBatchSize());
+                if (mails.isEmpty() || !configureSender()) {
+                    break;
+                }
+                int sent = sendBatch(mails);
+                // 整批失败时多半是服务器不可用,等下次再试
+                if (0 == sent) {
+                    break;
+                }
+                total += sent;
+            } while (mails.size() == mailProperties.getBatchSize());
         } catch (Exception e) {
-            logService.save(logData, LOG_MESSAGE_SEND_EMAIL_FAIL, LogType.EMAIL);
-            log.error(e.getMessage());
+            log.error("发送发件箱邮件失败", e);
+        } finally {
+            if (nodeId.equals(redisService.get(CommonRedisKey.MAIL_OUTBOX_LOCK))) {
+                redisService.remove(CommonRedisKey.MAIL_OUTBOX_LOCK);
+            }
         }
+        return total;
     }
 
     /**
-     * 判定是否要发送该邮件
+     * 写入发件箱
      *
-     * @param email 收件人邮箱
-     * @return 是否发送邮件
+     * @param to      收件人
+     * @param content 邮件内容(html)
+     * @param status  {@link Types#MAIL_STATUS_PENDING} 或 {@link Types#MAIL_STATUS_DIGEST}
      */
-    private boolean isEmail(String email) {
-        boolean isEmail = optionService.get(OptionKeys.IS_EMAIL, Boolean.FALSE);
-        if (!isEmail) {
-            return false;
+    private void enqueue(String to, String content, Integer status) {
+        if (StringUtils.isEmpty(to)) {
+            return;
         }
+        MailOutbox mail = new MailOutbox();
+        mail.setRecipient(to);
+        mail.setSubject(optionService.get(OptionKeys.EMAIL_SUBJECT, DiceConsts.EMAIL_TEMPLATE_DEFAULT_SUBJECT));
+        mail.setContent(content);
+        mail.setStatus(status);
+        mail.setAttempts(0);
+        mail.setNextAttemptTime(LocalDateTime.now());
+        mail.setCreateTime(LocalDateTime.now());
+        mail.insert();
+    }
 
-        String adminUserEmail = optionService.get(OptionKeys.EMAIL_USERNAME, "");
-        // 如果是管理员的回复则不必通知管理员
-        return StringUtils.isEmpty(adminUserEmail) || !adminUserEmail.equals(email);
+    /**
+     * 把等待合并的评论提醒合并成摘要邮件,攒够数量或第一条超过合并时间时合并,关闭摘要后剩余的直接合并
+     */
+    private void flushDigests() {
+        int max = mailProperties.getDigestMaxComments();
+        LocalDateTime expire = LocalDateTime.now().minusSeconds(mailProperties.getDigestWindow());
+        List<MailOutbox> items;
+        do {
+            items = mailOutboxMapper.selectDigest(max);
+            if (items.isEmpty() || (mailProperties.isDigestEnable() && items.size() < max
+                    && items.get(0).getCreateTime().isAfter(expire))) {
+                break;
+            }
+            List<MailOutbox> batch = items;
+            // 写入摘要邮件和删除单条提醒在同一个事务中
+            transactionTemplate.executeWithoutResult(status -> mergeDigest(batch));
+        } while (items.size() == max);
     }
 
     /**
-     * 发送邮件
+     * 按收件人合并评论提醒
      *
-     * @param content 邮件内容(html)
-     * @param to      收件人
-     * @throws MessagingException
+     * @param items 等待合并的评论提醒
      */
-    private void sendEmail(String content, String to) throws MessagingException {
-        String subject = optionService.get(OptionKeys.EMAIL_SUBJECT, DiceConsts.EMAIL_TEMPLATE_DEFAULT_SUBJECT);
+    private void mergeDigest(List<MailOutbox> items) {
+        Map<String, List<MailOutbox>> groups = new LinkedHashMap<>(4);
+        List<Integer> ids = new ArrayList<>(items.size());
+        for (MailOutbox item : items) {
+            groups.computeIfAbsent(item.getRecipient(), k -> new ArrayList<>()).add(item);
+            ids.add(item.getId());
+        }
+        String websiteName = optionService.get(OptionKeys.BLOG_NAME);
+        groups.forEach((recipient, group) -> {
+            StringBuilder sb = new StringBuilder();
+            for (MailOutbox item : group) {
+                sb.append(item.getContent());
+            }
+            Map<String, String> params = new HashMap<>(4);
+            params.put("websiteName", websiteName);
+            params.put("count", String.valueOf(group.size()));
+            params.put("items", sb.toString());
+            enqueue(recipient, ADMIN_DIGEST_TEMPLATE.render(params), Types.MAIL_STATUS_PENDING);
+        });
+        mailOutboxMapper.deleteByIds(ids);
+    }
+
+    /**
+     * 按当前邮件配置更新发送器,每批只读取一次配置
+     *
+     * @return 邮件配置是否完整
+     */
+    private boolean configureSender() {
         String host = optionService.get(OptionKeys.EMAIL_HOST);
-        Integer port = optionService.get(OptionKeys.EMAIL_PORT, 25);
         String username = optionService.get(OptionKeys.EMAIL_USERNAME);
+        if (StringUtils.isEmpty(host) || StringUtils.isEmpty(username)) {
+            log.warn("邮件服务器未配置, 暂不发送");
+            return false;
+        }
+        Integer port = optionService.get(OptionKeys.EMAIL_PORT, 25);
         String password = optionService.get(OptionKeys.EMAIL_PASSWORD);
+        if (mailSender.configure(host, port, username, password, mailProperties.getTimeout())) {
+            log.info("邮件配置变化, 重建发送器: {}:{}", host, port);
+        }
+        return true;
+    }
 
-        JavaMailSender mailSender = (JavaMailSender) mailSender(host, port,
-                username, password);
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-        helper.setFrom(username);
-        helper.setTo(to);
-        helper.setText(content, true);
-        helper.setSubject(subject);
-        mailSender.send(mimeMessage);
+    /**
+     * 发送一批邮件,成功的标记为已发送,失败的按指数退避安排重试
+     *
+     * @return 发送成功的数量
+     */
+    private int sendBatch(List<MailOutbox> mails) {
+        Map<Integer, Exception> failures = mailSender.send(mails);
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> sentIds = new ArrayList<>(mails.size());
+        List<String> recipients = new ArrayList<>(mails.size());
+        for (MailOutbox mail : mails) {
+            Exception failure = failures.get(mail.getId());
+            if (null == failure) {
+                sentIds.add(mail.getId());
+                recipients.add(mail.getRecipient());
+                continue;
+            }
+            int attempts = mail.getAttempts() + 1;
+            MailOutbox update = new MailOutbox();
+            update.setId(mail.getId());
+            update.setAttempts(attempts);
+            String error = String.valueOf(failure.getMessage());
+            update.setLastError(error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error);
+            if (attempts >= mailProperties.getMaxAttempts()) {
+                update.setStatus(Types.MAIL_STATUS_FAILED);
+                logService.save(mail.getContent() + ";  发送给:" + mail.getRecipient(), LOG_MESSAGE_SEND_EMAIL_FAIL, LogType.EMAIL);
+                log.error("邮件发送失败, 不再重试: {}, 收件人: {}", mail.getId(), mail.getRecipient(), failure);
+            } else {
+                update.setNextAttemptTime(now.plusSeconds(backoff(attempts)));
+                log.warn("邮件发送失败, 第{}次: {}, 收件人: {}, {}", attempts, mail.getId(), mail.getRecipient(), failure.getMessage());
+            }
+            mailOutboxMapper.updateById(update);
+        }
+        if (!sentIds.isEmpty()) {
+            mailOutboxMapper.markSent(sentIds, now);
+            logService.save("发送给:" + String.join(", ", recipients), LOG_MESSAGE_SEND_EMAIL_SUCCESS, LogType.EMAIL);
+        }
+        return sentIds.size();
     }
 
+    /**
+     * 第n次失败后的等待时间(秒),每次翻倍,不超过 maxBackoff
+     */
+    private long backoff(int attempts) {
+        long maxBackoff = mailProperties.getMaxBackoff();
+        long delay = mailProperties.getBackoff();
+        for (int i = 1; i < attempts && delay < maxBackoff; i++) {
+            delay *= 2;
+        }
+        return Math.min(delay, maxBackoff);
+    }
 
     /**
-     * 获取MailSender
+     * 判定是否要发送该邮件
      *
-     * @param host     主机名
-     * @param port     端口
-     * @param username 邮件名
-     * @param password 密码
-     * @return MailSender
+     * @param email 收件人邮箱
+     * @return 是否发送邮件
      */
-    private MailSender mailSender(String host, Integer port, String username, String password) {
-        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
-        mailSender.setHost(host);
-        mailSender.setPort(port);
-        mailSender.setUsername(username);
-        mailSender.setPassword(password);
-        return mailSender;
+    private boolean isEmail(String email) {
+        boolean isEmail = optionService.get(OptionKeys.IS_EMAIL, Boolean.FALSE);
+        if (!isEmail) {
+            return false;
+        }
+
+        String adminUserEmail = optionService.get(OptionKeys.EMAIL_USERNAME, "");
+        // 如果是管理员的回复则不必通知管理员
+        return StringUtils.isEmpty(adminUserEmail) || !adminUserEmail.equals(email);
     }
 
     /**
@@ -0,0 +1,61 @@
+package com.bihell.dice.blog.service.search;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.bihell.dice.blog.model.dto.SearchHit;
+
+import java.util.List;
+
+/**
+ * 全文检索 Service 接口
+ *
+ * @author bihell
+ */
+public interface SearchService {
+
+    /**
+     * 全文检索是否可用
+     *
+     * @return boolean
+     */
+    boolean isEnabled();
+
+    /**
+     * 按数据库中的当前内容更新文章、页面或代码段的索引,事务提交后执行
+     *
+     * @param id 文章id
+     */
+    void index(Integer id);
+
+    /**
+     * 删除文章、页面或代码段的索引,事务提交后执行
+     *
+     * @param id 文章id
+     */
+    void remove(Integer id);
+
+    /**
+     * 从数据库重建索引
+     *
+     * @return 索引的数量
+     */
+    int rebuild();
+
+    /**
+     * 前端搜索已发布的文章和页面
+     *
+     * @param keyword 关键字
+     * @param page    第几页
+     * @param limit   每页数量
+     * @return IPage<SearchHit>
+     */
+    IPage<SearchHit> search(String keyword, Integer page, Integer limit);
+
+    /**
+     * 后台搜索,返回匹配的id,按相关度排序
+     *
+     * @param keyword 关键字
+     * @param type    类型 {@link com.bihell.dice.blog.utils.Types}
+     * @return List<Integer>
+     */
+    List<Integer> searchIds(String keyword, String type);
+}
@@ -0,0 +1,389 @@
+package com.bihell.dice.blog.service.search.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.bihell.dice.blog.enums.PostStatusEnum;
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
+import com.bihell.dice.blog.mapper.tool.SnippetFileMapper;
+import com.bihell.dice.blog.model.blog.Article;
+import com.bihell.dice.blog.model.dto.SearchHit;
+import com.bihell.dice.blog.model.tool.SnippetFile;
+import com.bihell.dice.blog.service.search.SearchService;
+import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.config.properties.DiceSearchProperties;
+import com.bihell.dice.framework.common.exception.TipException;
+import com.bihell.dice.framework.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.highlight.SimpleSpanFragmenter;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基于 Lucene 的全文检索 Service 实现类
+ * <p>
+ * 索引保存在本地磁盘,使用 CJKAnalyzer 对中日韩文字做二元切分。
+ * 每个节点维护自己的索引,可以通过后台接口或定时任务从数据库重建
+ *
+ * @author bihell
+ */
+@Slf4j
+@Service("searchService")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class SearchServiceImpl implements SearchService {
+
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_TYPE = "type";
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_TAGS = "tags";
+    private static final String FIELD_CONTENT = "content";
+    private static final String FIELD_CREATE_TIME = "createTime";
+
+    private static final String[] SEARCH_FIELDS = {FIELD_TITLE, FIELD_TAGS, FIELD_CONTENT};
+    private static final Map<String, Float> SEARCH_BOOSTS = new HashMap<>(4);
+
+    static {
+        SEARCH_BOOSTS.put(FIELD_TITLE, 3f);
+        SEARCH_BOOSTS.put(FIELD_TAGS, 2f);
+        SEARCH_BOOSTS.put(FIELD_CONTENT, 1f);
+    }
+
+    private final DiceSearchProperties searchProperties;
+    private final ArticleMapper articleMapper;
+    private final SnippetFileMapper snippetFileMapper;
+
+    private final Analyzer analyzer = new CJKAnalyzer();
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+
+    @PostConstruct
+    public void init() {
+        if (!searchProperties.isEnable()) {
+            return;
+        }
+        try {
+            IndexWriterConfig config = new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+            indexWriter = new IndexWriter(FSDirectory.open(Paths.get(searchProperties.getIndexFolder())), config);
+            searcherManager = new SearcherManager(indexWriter, null);
+        } catch (IOException e) {
+            log.error("打开全文索引失败, 全文检索不可用: {}", searchProperties.getIndexFolder(), e);
+            indexWriter = null;
+            searcherManager = null;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            if (null != searcherManager) {
+                searcherManager.close();
+            }
+            if (null != indexWriter) {
+                indexWriter.close();
+            }
+        } catch (IOException e) {
+            log.error("关闭全文索引失败", e);
+        }
+    }
+
+    /**
+     * 索引为空时(首次启动或删除了索引目录)从数据库重建
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (isEnabled() && indexWriter.getDocStats().numDocs == 0) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return null != indexWriter;
+    }
+
+    @Override
+    public void index(Integer id) {
+        if (!isEnabled() || null == id) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            try {
+                Article article = articleMapper.selectOne(indexWrapper().eq(Article::getId, id));
+                if (null == article) {
+                    indexWriter.deleteDocuments(new Term(FIELD_ID, String.valueOf(id)));
+                } else {
+                    List<Article> articles = Collections.singletonList(article);
+                    indexWriter.updateDocument(new Term(FIELD_ID, String.valueOf(id)), toDocument(article, snippetFiles(articles)));
+                }
+                commit();
+            } catch (IOException e) {
+                log.error("更新全文索引失败: {}", id, e);
+            }
+        });
+    }
+
+    @Override
+    public void remove(Integer id) {
+        if (!isEnabled() || null == id) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            try {
+                indexWriter.deleteDocuments(new Term(FIELD_ID, String.valueOf(id)));
+                commit();
+            } catch (IOException e) {
+                log.error("删除全文索引失败: {}", id, e);
+            }
+        });
+    }
+
+    @Override
+    public synchronized int rebuild() {
+        if (!isEnabled()) {
+            throw new TipException("全文检索未启用");
+        }
+        int batchSize = searchProperties.getRebuildBatchSize();
+        int count = 0;
+        try {
+            indexWriter.deleteAll();
+            Integer lastId = 0;
+            List<Article> articles;
+            do {
+                articles = articleMapper.selectList(indexWrapper()
+                        .gt(Article::getId, lastId)
+                        .orderByAsc(Article::getId)
+                        .last("LIMIT " + batchSize));
+                Map<Integer, List<SnippetFile>> files = snippetFiles(articles);
+                for (Article article : articles) {
+                    indexWriter.addDocument(toDocument(article, files));
+                    lastId = article.getId();
+                }
+                count += articles.size();
+            } while (articles.size() == batchSize);
+            commit();
+        } catch (IOException e) {
+            log.error("重建全文索引失败", e);
+            throw new TipException("重建全文索引失败");
+        }
+        log.info("重建全文索引完成, 数量: {}", count);
+        return count;
+    }
+
+    @Override
+    public IPage<SearchHit> search(String keyword, Integer page, Integer limit) {
+        // 参数来自前台请求,限制页码和每页数量,只查询 maxResultWindow 以内的结果
+        int size = null == limit ? Integer.parseInt(DiceConsts.PAGE_SIZE) : Math.max(1, Math.min(limit, DiceConsts.MAX_PAGE_SIZE));
+        long current = null == page ? 1 : Math.max(1, page);
+        Page<SearchHit> result = new Page<>(current, size);
+        long window = searchProperties.getMaxResultWindow();
+        if (!isEnabled() || StringUtils.isEmpty(keyword)) {
+            return result;
+        }
+        BooleanQuery.Builder types = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(FIELD_TYPE, Types.POST)), BooleanClause.Occur.SHOULD)
+                .add(new TermQuery(new Term(FIELD_TYPE, Types.PAGE)), BooleanClause.Occur.SHOULD);
+        Query keywordQuery = parse(keyword);
+        Query query = new BooleanQuery.Builder()
+                .add(keywordQuery, BooleanClause.Occur.MUST)
+                .add(types.build(), BooleanClause.Occur.FILTER)
+                .add(new TermQuery(new Term(FIELD_STATUS, PostStatusEnum.PUBLISHED.name())), BooleanClause.Occur.FILTER)
+                .build();
+
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            long start = result.offset();
+            if (start >= window) {
+                result.setTotal(searcher.count(query));
+                return result;
+            }
+            int offset = (int) start;
+            TopDocs topDocs = searcher.search(query, (int) Math.min(start + size, window));
+            result.setTotal(topDocs.totalHits.value);
+            List<SearchHit> hits = new ArrayList<>(Math.max(0, Math.min(size, topDocs.scoreDocs.length - offset)));
+            for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                hits.add(toSearchHit(searcher.doc(topDocs.scoreDocs[i].doc), keywordQuery));
+            }
+            result.setRecords(hits);
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            log.error("全文检索失败: {}", keyword, e);
+            throw new TipException("搜索失败");
+        } finally {
+            release(searcher);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Integer> searchIds(String keyword, String type) {
+        Query query = new BooleanQuery.Builder()
+                .add(parse(keyword), BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(FIELD_TYPE, type)), BooleanClause.Occur.FILTER)
+                .build();
+        IndexSearcher searcher = null;
+        try {
+            searcher = searcherManager.acquire();
+            TopDocs topDocs = searcher.search(query, searchProperties.getMaxMatches());
+            List<Integer> ids = new ArrayList<>(topDocs.scoreDocs.length);
+            for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+                ids.add(Integer.valueOf(searcher.doc(scoreDoc.doc).get(FIELD_ID)));
+            }
+            return ids;
+        } catch (IOException e) {
+            log.error("全文检索失败: {}", keyword, e);
+            throw new TipException("搜索失败");
+        } finally {
+            release(searcher);
+        }
+    }
+
+    private LambdaQueryWrapper<Article> indexWrapper() {
+        return new QueryWrapper<Article>().lambda()
+                .select(Article::getId, Article::getTitle, Article::getContent, Article::getTags,
+                        Article::getType, Article::getStatus, Article::getCreateTime);
+    }
+
+    /**
+     * 批量获取代码段文件,按代码段id分组
+     */
+    private Map<Integer, List<SnippetFile>> snippetFiles(List<Article> articles) {
+        List<Integer> snippetIds = new ArrayList<>();
+        for (Article article : articles) {
+            if (Types.SNIPPET.equals(article.getType())) {
+                snippetIds.add(article.getId());
+            }
+        }
+        if (snippetIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, List<SnippetFile>> files = new HashMap<>(snippetIds.size() * 4 / 3 + 1);
+        snippetFileMapper.selectList(new QueryWrapper<SnippetFile>().lambda()
+                .select(SnippetFile::getSnippetId, SnippetFile::getTitle, SnippetFile::getContent)
+                .in(SnippetFile::getSnippetId, snippetIds))
+                .forEach(file -> files.computeIfAbsent(file.getSnippetId(), k -> new ArrayList<>()).add(file));
+        return files;
+    }
+
+    private Document toDocument(Article article, Map<Integer, List<SnippetFile>> snippetFiles) {
+        StringBuilder content = new StringBuilder();
+        if (null != article.getContent()) {
+            content.append(article.getContent());
+        }
+        // 代码段的文件标题和内容一起索引
+        for (SnippetFile file : snippetFiles.getOrDefault(article.getId(), Collections.emptyList())) {
+            content.append('\n').append(file.getTitle()).append('\n').append(file.getContent());
+        }
+
+        Document document = new Document();
+        document.add(new StringField(FIELD_ID, String.valueOf(article.getId()), Field.Store.YES));
+        document.add(new StringField(FIELD_TYPE, String.valueOf(article.getType()), Field.Store.YES));
+        document.add(new StringField(FIELD_STATUS, null == article.getStatus() ? "" : article.getStatus().name(), Field.Store.NO));
+        document.add(new TextField(FIELD_TITLE, null == article.getTitle() ? "" : article.getTitle(), Field.Store.YES));
+        document.add(new TextField(FIELD_TAGS, null == article.getTags() ? "" : article.getTags(), Field.Store.NO));
+        document.add(new TextField(FIELD_CONTENT, content.toString(), Field.Store.YES));
+        if (null != article.getCreateTime()) {
+            document.add(new StoredField(FIELD_CREATE_TIME, article.getCreateTime().toString()));
+        }
+        return document;
+    }
+
+    private SearchHit toSearchHit(Document document, Query query) throws IOException, InvalidTokenOffsetsException {
+        String title = document.get(FIELD_TITLE);
+        String content = document.get(FIELD_CONTENT);
+        String highlightTitle = highlight(query, FIELD_TITLE, title);
+        String highlight = highlight(query, FIELD_CONTENT, content);
+        if (null == highlight) {
+            String preview = content.length() > searchProperties.getFragmentSize()
+                    ? content.substring(0, searchProperties.getFragmentSize()) : content;
+            highlight = new SimpleHTMLEncoder().encodeText(preview);
+        }
+        String createTime = document.get(FIELD_CREATE_TIME);
+        return new SearchHit()
+                .setId(Integer.valueOf(document.get(FIELD_ID)))
+                .setType(document.get(FIELD_TYPE))
+                .setTitle(null == highlightTitle ? new SimpleHTMLEncoder().encodeText(title) : highlightTitle)
+                .setHighlight(highlight)
+                .setCreateTime(null == createTime ? null : LocalDateTime.parse(createTime));
+    }
+
+    private String highlight(Query query, String field, String text) throws IOException, InvalidTokenOffsetsException {
+        QueryScorer scorer = new QueryScorer(query, field);
+        Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<em>", "</em>"), new SimpleHTMLEncoder(), scorer);
+        highlighter.setTextFragmenter(new SimpleSpanFragmenter(scorer, searchProperties.getFragmentSize()));
+        return highlighter.getBestFragment(analyzer, field, text);
+    }
+
+    private Query parse(String keyword) {
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(SEARCH_FIELDS, analyzer, SEARCH_BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            return parser.parse(QueryParser.escape(keyword));
+        } catch (ParseException e) {
+            throw new TipException("搜索关键字不合法");
+        }
+    }
+
+    private void commit() throws IOException {
+        indexWriter.commit();
+        searcherManager.maybeRefresh();
+    }
+
+    private void release(IndexSearcher searcher) {
+        if (null == searcher) {
+            return;
+        }
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.error("释放IndexSearcher失败", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.bihell.dice.blog.service.snapshot;
+
+/**
+ * 前台接口静态快照 Service
+ *
+ * @author bihell
+ */
+public interface SnapshotService {
+
+    /**
+     * 全量导出前台接口的快照
+     */
+    void exportAll();
+
+    /**
+     * 按失效的缓存标签重新导出受影响的快照
+     */
+    void flush();
+}
@@ -0,0 +1,210 @@
+package com.bihell.dice.blog.service.snapshot.impl;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
+import com.bihell.dice.blog.model.blog.Article;
+import com.bihell.dice.blog.model.blog.Comment;
+import com.bihell.dice.blog.service.blog.ArticleService;
+import com.bihell.dice.blog.service.blog.CommentService;
+import com.bihell.dice.blog.service.blog.MetaService;
+import com.bihell.dice.blog.service.blog.OptionService;
+import com.bihell.dice.blog.service.snapshot.SnapshotService;
+import com.bihell.dice.blog.utils.CacheTagKeys;
+import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.config.properties.DiceSnapshotProperties;
+import com.bihell.dice.framework.cache.CacheTags;
+import com.bihell.dice.framework.common.api.ApiResult;
+import com.bihell.dice.framework.common.api.RestResponse;
+import com.bihell.dice.framework.core.pagination.Pagination;
+import com.bihell.dice.framework.snapshot.SnapshotStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 前台接口静态快照 Service 实现类
+ * <p>
+ * 按 FrontController 的返回格式调用各个 Service 生成 JSON,使用和 Spring MVC 相同的 ObjectMapper 序列化。
+ * 本节点上失效的缓存标签先记录下来,定时重新导出标签对应的文件
+ *
+ * @author bihell
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class SnapshotServiceImpl implements SnapshotService {
+
+    private final ArticleService articleService;
+
+    private final MetaService metaService;
+
+    private final OptionService optionService;
+
+    private final CommentService commentService;
+
+    private final ArticleMapper articleMapper;
+
+    private final CacheTags cacheTags;
+
+    private final SnapshotStore snapshotStore;
+
+    private final DiceSnapshotProperties snapshotProperties;
+
+    private final RequestMappingHandlerAdapter handlerAdapter;
+
+    private final Set<String> dirtyTags = ConcurrentHashMap.newKeySet();
+
+    private ObjectMapper objectMapper;
+
+    @PostConstruct
+    public void init() {
+        objectMapper = new ObjectMapper();
+        for (HttpMessageConverter<?> converter : handlerAdapter.getMessageConverters()) {
+            if (converter instanceof MappingJackson2HttpMessageConverter) {
+                objectMapper = ((MappingJackson2HttpMessageConverter) converter).getObjectMapper();
+                break;
+            }
+        }
+        if (snapshotProperties.isEnable()) {
+            cacheTags.addListener(tags -> Collections.addAll(dirtyTags, tags));
+        }
+    }
+
+    @Override
+    public synchronized void exportAll() {
+        long start = System.currentTimeMillis();
+        dirtyTags.clear();
+        exportOptions();
+        exportArticleList();
+        exportPageList();
+        List<Integer> ids = new ArrayList<>(articleMapper.selectPublishedIds());
+        for (Article page : articleService.getFrontPageList()) {
+            ids.add(page.getId());
+        }
+        for (Integer id : ids) {
+            exportArticle(id);
+            exportComments(id);
+        }
+        log.info("导出快照完成, 文章和页面: {}, 耗时: {}ms", ids.size(), System.currentTimeMillis() - start);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${dice.snapshot.flush-interval:5000}")
+    public synchronized void flush() {
+        if (!snapshotProperties.isEnable() || dirtyTags.isEmpty()) {
+            return;
+        }
+        Set<String> tags = new HashSet<>(dirtyTags);
+        dirtyTags.removeAll(tags);
+        try {
+            if (tags.contains(CacheTagKeys.ARTICLES)) {
+                // 属性改名或删除会影响所有文章
+                exportAll();
+                return;
+            }
+            if (tags.contains(CacheTagKeys.ARTICLE_LIST) || tags.contains(CacheTagKeys.COMMENT_COUNT)) {
+                exportArticleList();
+            }
+            if (tags.contains(CacheTagKeys.PAGE_LIST)) {
+                exportPageList();
+            }
+            if (tags.contains(CacheTagKeys.OPTIONS)) {
+                exportOptions();
+            }
+            for (String tag : tags) {
+                if (tag.startsWith(CacheTagKeys.ARTICLE_PREFIX)) {
+                    exportArticle(NumberUtils.toInt(tag.substring(CacheTagKeys.ARTICLE_PREFIX.length())));
+                } else if (tag.startsWith(CacheTagKeys.COMMENTS_PREFIX)) {
+                    exportComments(NumberUtils.toInt(tag.substring(CacheTagKeys.COMMENTS_PREFIX.length())));
+                }
+            }
+        } catch (RuntimeException e) {
+            // 下次重试
+            dirtyTags.addAll(tags);
+            log.warn("增量导出快照失败", e);
+        }
+    }
+
+    private void exportOptions() {
+        write("option", null, null, RestResponse.ok(optionService.getFrontOptionMap()));
+    }
+
+    private void exportArticleList() {
+        Integer limit = Integer.valueOf(DiceConsts.PAGE_SIZE);
+        long pages = 1;
+        for (int page = 1; page <= pages; page++) {
+            IPage<Article> articles = articleService.getFrontArticles(page, limit);
+            pages = Math.max(1, articles.getPages());
+            write("article", null, page, RestResponse.ok(new Pagination<Article>(articles)));
+        }
+        deletePages("article", null, (int) pages);
+        write("tag", null, null, RestResponse.ok(metaService.getPublishMetaDtos(Types.TAG)));
+        write("category", null, null, RestResponse.ok(metaService.getPublishMetaDtos(Types.CATEGORY)));
+        write("archive", null, null, RestResponse.ok(articleService.getArchives()));
+    }
+
+    private void exportPageList() {
+        write("page", null, null, RestResponse.ok(articleService.getFrontPageList()));
+    }
+
+    private void exportArticle(Integer id) {
+        Article article = articleService.getFrontArticle(id, "");
+        if (null == article) {
+            snapshotStore.delete(SnapshotStore.fileName("article/" + id, null, null));
+        } else {
+            write("article/" + id, null, null, ApiResult.ok(article));
+        }
+        Article page = articleService.getFrontPage(id);
+        if (null == page) {
+            snapshotStore.delete(SnapshotStore.fileName("page/" + id, null, null));
+        } else {
+            write("page/" + id, null, null, ApiResult.ok(page));
+        }
+    }
+
+    private void exportComments(Integer articleId) {
+        Integer limit = Integer.valueOf(DiceConsts.PAGE_SIZE);
+        long pages = 1;
+        for (int page = 1; page <= pages; page++) {
+            IPage<Comment> comments = commentService.getCommentsByArticleId(page, limit, articleId);
+            pages = Math.max(1, comments.getPages());
+            write("comment", articleId, page, RestResponse.ok(new Pagination<Comment>(comments)));
+        }
+        deletePages("comment", articleId, (int) pages);
+    }
+
+    /**
+     * 删除超出总页数的旧快照
+     */
+    private void deletePages(String path, Integer articleId, int pages) {
+        String fileName;
+        for (int page = pages + 1; snapshotStore.exists(fileName = SnapshotStore.fileName(path, articleId, page)); page++) {
+            snapshotStore.delete(fileName);
+        }
+    }
+
+    private void write(String path, Integer articleId, Integer page, Object response) {
+        try {
+            snapshotStore.write(SnapshotStore.fileName(path, articleId, page), objectMapper.writeValueAsBytes(response));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化快照失败: " + path, e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.bihell.dice.blog.service.system;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.bihell.dice.blog.model.system.Log;
 import com.bihell.dice.blog.model.system.LogType;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
 
 /**
  * 日志 Service 接口
@@ -63,6 +64,15 @@ public interface LogService {
      */
     IPage<Log> getLogs(Integer current, Integer limit);
 
+    /**
+     * 游标获取日志,按id倒序
+     *
+     * @param cursor 上一页返回的游标,第一页为空
+     * @param limit  分页大小
+     * @return CursorPaging<Log>
+     */
+    CursorPaging<Log> getLogs(String cursor, Integer limit);
+
     /**
      * 保存操作日志
      *
@@ -1,16 +1,21 @@
 package com.bihell.dice.blog.service.system.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.bihell.dice.blog.model.system.Log;
 import com.bihell.dice.blog.model.system.LogType;
 import com.bihell.dice.blog.mapper.system.LogMapper;
 import com.bihell.dice.blog.service.system.LogService;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
+import com.bihell.dice.framework.core.pagination.PageCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * 日志 Service 实现类
  *
@@ -72,6 +77,24 @@ public class LogServiceImpl implements LogService {
         return logMapper.selectPage(page, null);
     }
 
+    /**
+     * 游标获取日志,按id倒序
+     *
+     * @param cursor 上一页返回的游标,第一页为空
+     * @param limit  分页大小
+     * @return CursorPaging<Log>
+     */
+    @Override
+    public CursorPaging<Log> getLogs(String cursor, Integer limit) {
+        limit = PageCursor.limit(limit);
+        Long lastId = PageCursor.decodeId(cursor);
+        List<Log> logs = logMapper.selectList(new QueryWrapper<Log>().lambda()
+                .lt(null != lastId, Log::getId, lastId)
+                .orderByDesc(Log::getId)
+                .last("LIMIT " + (limit + 1)));
+        return new CursorPaging<>(logs, limit, log -> PageCursor.encode(log.getId()));
+    }
+
     /**
      * 保存操作日志
      *
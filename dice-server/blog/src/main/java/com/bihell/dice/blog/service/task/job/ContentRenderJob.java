@@ -0,0 +1,68 @@
+package com.bihell.dice.blog.service.task.job;
+
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
+import com.bihell.dice.blog.mapper.blogs.CommentMapper;
+import com.bihell.dice.blog.model.blog.Article;
+import com.bihell.dice.blog.model.blog.Comment;
+import com.bihell.dice.blog.service.task.JobExecuter;
+import com.bihell.dice.blog.utils.RenderUtil;
+import com.bihell.dice.config.constant.DiceConsts;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 回填文章和评论的渲染结果
+ * <p>
+ * 分批处理渲染版本为空或低于当前版本的数据,可配置参数 batchSize(每批数量,默认100)
+ *
+ * @author bihell
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ContentRenderJob extends JobExecuter {
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    private final ArticleMapper articleMapper;
+
+    private final CommentMapper commentMapper;
+
+    @Override
+    public void execute(Map<String, Object> dataMap) {
+        int batchSize = DEFAULT_BATCH_SIZE;
+        if (null != dataMap && null != dataMap.get("batchSize")) {
+            batchSize = Integer.parseInt(String.valueOf(dataMap.get("batchSize")));
+        }
+
+        int articleCount = 0;
+        List<Article> articles;
+        do {
+            articles = articleMapper.selectRenderStale(DiceConsts.MARKDOWN_RENDER_VERSION, batchSize);
+            for (Article article : articles) {
+                RenderUtil.renderArticle(article);
+                // 内容为空的文章也要写入版本号,避免重复处理
+                article.setRenderVersion(DiceConsts.MARKDOWN_RENDER_VERSION);
+                articleMapper.updateRendered(article);
+            }
+            articleCount += articles.size();
+        } while (articles.size() == batchSize);
+
+        int commentCount = 0;
+        List<Comment> comments;
+        do {
+            comments = commentMapper.selectRenderStale(DiceConsts.MARKDOWN_RENDER_VERSION, batchSize);
+            for (Comment comment : comments) {
+                RenderUtil.renderComment(comment);
+                comment.setRenderVersion(DiceConsts.MARKDOWN_RENDER_VERSION);
+                commentMapper.updateRendered(comment);
+            }
+            commentCount += comments.size();
+        } while (comments.size() == batchSize);
+
+        log.info("回填渲染结果完成, 文章: {}, 评论: {}", articleCount, commentCount);
+    }
+}
@@ -0,0 +1,30 @@
+package com.bihell.dice.blog.service.task.job;
+
+import com.bihell.dice.blog.service.search.SearchService;
+import com.bihell.dice.blog.service.task.JobExecuter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 从数据库重建全文索引
+ * <p>
+ * 多节点部署时每个节点维护自己的索引,定期重建可以同步其他节点上的修改
+ *
+ * @author bihell
+ */
+@Component
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class SearchIndexJob extends JobExecuter {
+
+    private final SearchService searchService;
+
+    @Override
+    public void execute(Map<String, Object> dataMap) {
+        if (searchService.isEnabled()) {
+            searchService.rebuild();
+        }
+    }
+}
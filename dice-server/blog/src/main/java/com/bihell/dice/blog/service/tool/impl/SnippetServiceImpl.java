@@ -10,6 +10,7 @@ import com.bihell.dice.blog.model.tool.SnippetFile;
 import com.bihell.dice.framework.common.exception.TipException;
 import com.bihell.dice.blog.enums.PostStatusEnum;
 import com.bihell.dice.blog.service.blog.MetaService;
+import com.bihell.dice.blog.service.search.SearchService;
 import com.bihell.dice.blog.service.tool.SnippetService;
 import com.bihell.dice.blog.utils.Types;
 import lombok.RequiredArgsConstructor;
@@ -39,6 +40,8 @@ public class SnippetServiceImpl implements SnippetService {
 
     private final SnippetFileMapper snippetFilesMapper;
 
+    private final SearchService searchService;
+
     /**
      * 保存或更新文章
      *
@@ -102,6 +105,7 @@ public class SnippetServiceImpl implements SnippetService {
 
         // 存储标签
         metasService.saveOrRemoveMetas(article.getTags(), Types.SNIPPET_TAG, article.getId());
+        searchService.index(article.getId());
 
         return article.getId();
     }
@@ -127,6 +131,7 @@ public class SnippetServiceImpl implements SnippetService {
             // 删除代码段文件
             int commentsResult = snippetFilesMapper.delete(new QueryWrapper<SnippetFile>().lambda().eq(SnippetFile::getSnippetId, snippetId));
             log.info("删除对应的代码段,数量: {}", commentsResult);
+            searchService.remove(snippetId);
 
             // todo 这里删除代码段标签有问题待修改
             // 传空的属性，则移除该代码段关联的属性
@@ -0,0 +1,14 @@
+package com.bihell.dice.blog.service.warmup;
+
+/**
+ * 启动预热 Service
+ *
+ * @author bihell
+ */
+public interface WarmUpService {
+
+    /**
+     * 预热前端接口使用的缓存,超过配置的时间后返回
+     */
+    void warmUp();
+}
@@ -0,0 +1,92 @@
+package com.bihell.dice.blog.service.warmup.impl;
+
+import com.bihell.dice.blog.mapper.blogs.ArticleMapper;
+import com.bihell.dice.blog.service.blog.ArticleService;
+import com.bihell.dice.blog.service.blog.MetaService;
+import com.bihell.dice.blog.service.blog.OptionService;
+import com.bihell.dice.blog.service.warmup.WarmUpService;
+import com.bihell.dice.blog.utils.Types;
+import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.config.properties.DiceWarmUpProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动预热 Service 实现类
+ * <p>
+ * 通过各个 Service 的代理调用前端接口使用的方法,把结果加载到缓存中
+ *
+ * @author bihell
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class WarmUpServiceImpl implements WarmUpService {
+
+    private final ArticleService articleService;
+
+    private final MetaService metaService;
+
+    private final OptionService optionService;
+
+    private final ArticleMapper articleMapper;
+
+    private final DiceWarmUpProperties warmUpProperties;
+
+    @Override
+    public void warmUp() {
+        long start = System.currentTimeMillis();
+        List<Callable<Object>> tasks = new ArrayList<>();
+        tasks.add(optionService::getFrontOptionMap);
+        tasks.add(articleService::getFrontPageList);
+        tasks.add(articleService::getArchives);
+        tasks.add(() -> metaService.getPublishMetaDtos(Types.TAG));
+        tasks.add(() -> metaService.getPublishMetaDtos(Types.CATEGORY));
+        Integer limit = Integer.valueOf(DiceConsts.PAGE_SIZE);
+        tasks.add(() -> articleService.getFrontArticles("", limit));
+        for (int page = 1; page <= warmUpProperties.getArticlePages(); page++) {
+            int current = page;
+            tasks.add(() -> articleService.getFrontArticles(current, limit));
+        }
+        for (Integer id : articleMapper.selectTopHitIds(warmUpProperties.getTopArticles())) {
+            tasks.add(() -> articleService.getFrontArticle(id, ""));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(warmUpProperties.getThreads(), new CustomizableThreadFactory("warm-up-"));
+        int failed = 0;
+        int timedOut = 0;
+        try {
+            List<Future<Object>> futures = executor.invokeAll(tasks, warmUpProperties.getTimeout(), TimeUnit.SECONDS);
+            for (Future<Object> future : futures) {
+                if (future.isCancelled()) {
+                    timedOut++;
+                    continue;
+                }
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("预热失败", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("预热完成, 任务: {}, 失败: {}, 超时: {}, 耗时: {}ms",
+                tasks.size(), failed, timedOut, System.currentTimeMillis() - start);
+    }
+}
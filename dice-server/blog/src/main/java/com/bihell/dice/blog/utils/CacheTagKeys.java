@@ -0,0 +1,70 @@
+package com.bihell.dice.blog.utils;
+
+/**
+ * 博客缓存的标签
+ * <p>
+ * 在 @Cacheable 的 key 表达式中使用相同的字符串
+ *
+ * @author bihell
+ */
+public class CacheTagKeys {
+
+    /**
+     * 所有文章详情,属性改名或删除时使用
+     */
+    public static final String ARTICLES = "articles";
+
+    /**
+     * 前端文章列表、归档和属性列表
+     */
+    public static final String ARTICLE_LIST = "list:articles";
+
+    /**
+     * 前端自定义页面列表
+     */
+    public static final String PAGE_LIST = "list:pages";
+
+    /**
+     * 评论数量
+     */
+    public static final String COMMENT_COUNT = "comments";
+
+    /**
+     * 前端设置
+     */
+    public static final String OPTIONS = "options";
+
+    /**
+     * 单篇文章或页面标签的前缀
+     */
+    public static final String ARTICLE_PREFIX = "article:";
+
+    /**
+     * 文章评论列表标签的前缀
+     */
+    public static final String COMMENTS_PREFIX = "comments:";
+
+    private CacheTagKeys() {
+    }
+
+    /**
+     * 单篇文章或页面
+     */
+    public static String article(Integer id) {
+        return ARTICLE_PREFIX + id;
+    }
+
+    /**
+     * 文章下的评论列表
+     */
+    public static String comments(Integer articleId) {
+        return COMMENTS_PREFIX + articleId;
+    }
+
+    /**
+     * 单条评论
+     */
+    public static String comment(Integer id) {
+        return "comment:" + id;
+    }
+}
@@ -0,0 +1,120 @@
+package com.bihell.dice.blog.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的邮件模板
+ * <p>
+ * 模板只解析一次,拆成文本和占位符片段,填充时按顺序拼接。
+ * ${name} 填充时转义html,$!{name} 原样填充,缺少的参数填充空字符串
+ *
+ * @author bihell
+ */
+public class MailTemplate {
+
+    private final List<String> texts;
+
+    /**
+     * 占位符的参数名,和 texts 交替出现
+     */
+    private final List<String> names;
+
+    private final List<Boolean> escapes;
+
+    private final int length;
+
+    private MailTemplate(List<String> texts, List<String> names, List<Boolean> escapes, int length) {
+        this.texts = texts;
+        this.names = names;
+        this.escapes = escapes;
+        this.length = length;
+    }
+
+    /**
+     * 解析模板
+     *
+     * @param template 模板内容
+     * @return MailTemplate
+     */
+    public static MailTemplate compile(String template) {
+        List<String> texts = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> escapes = new ArrayList<>();
+        int length = 0;
+        // 当前文本片段的开始位置
+        int textStart = 0;
+        int start = template.indexOf('$');
+        while (start >= 0) {
+            boolean raw = template.startsWith("!{", start + 1);
+            int open = raw ? start + 2 : start + 1;
+            int end = template.indexOf('}', open);
+            if (end < 0 || !template.startsWith("{", open)) {
+                // 不是占位符,作为普通文本
+                start = template.indexOf('$', start + 1);
+                continue;
+            }
+            String text = template.substring(textStart, start);
+            texts.add(text);
+            length += text.length();
+            names.add(template.substring(open + 1, end));
+            escapes.add(!raw);
+            textStart = end + 1;
+            start = template.indexOf('$', textStart);
+        }
+        String tail = template.substring(textStart);
+        texts.add(tail);
+        length += tail.length();
+        return new MailTemplate(texts, names, escapes, length);
+    }
+
+    /**
+     * 填充模板
+     *
+     * @param params 填充的参数
+     * @return 邮件内容
+     */
+    public String render(Map<String, String> params) {
+        StringBuilder sb = new StringBuilder(length + 256);
+        for (int i = 0; i < names.size(); i++) {
+            sb.append(texts.get(i));
+            String value = params.get(names.get(i));
+            if (null == value) {
+                continue;
+            }
+            if (escapes.get(i)) {
+                escape(value, sb);
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append(texts.get(texts.size() - 1));
+        return sb.toString();
+    }
+
+    private static void escape(String value, StringBuilder sb) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                case '\'':
+                    sb.append("&#39;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bihell.dice.blog.utils;
+
+import com.bihell.dice.blog.model.blog.Article;
+import com.bihell.dice.blog.model.blog.Comment;
+import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.framework.util.DiceUtil;
+
+/**
+ * 保存时渲染markdown的工具类
+ *
+ * @author bihell
+ */
+public class RenderUtil {
+
+    private RenderUtil() {
+    }
+
+    /**
+     * 渲染文章内容和摘要
+     *
+     * @param article 文章entity,content为空时不渲染
+     */
+    public static void renderArticle(Article article) {
+        if (null == article.getContent()) {
+            return;
+        }
+        article.setContentHtml(DiceUtil.contentTransform(article.getContent(), false, true));
+        article.setSummaryHtml(DiceUtil.contentTransform(article.getContent(), true, true));
+        article.setRenderVersion(DiceConsts.MARKDOWN_RENDER_VERSION);
+    }
+
+    /**
+     * 渲染评论内容
+     *
+     * @param comment 评论entity,content为空时不渲染
+     */
+    public static void renderComment(Comment comment) {
+        if (null == comment.getContent()) {
+            return;
+        }
+        comment.setContentHtml(DiceUtil.contentTransform(comment.getContent(), false, true));
+        comment.setRenderVersion(DiceConsts.MARKDOWN_RENDER_VERSION);
+    }
+}
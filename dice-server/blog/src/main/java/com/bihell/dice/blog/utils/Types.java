@@ -41,6 +41,26 @@ public interface Types {
      */
     Integer COMMENT_STATUS_DELETE = -1;
 
+    /**
+     * 邮件状态:待发送
+     */
+    Integer MAIL_STATUS_PENDING = 0;
+
+    /**
+     * 邮件状态:已发送
+     */
+    Integer MAIL_STATUS_SENT = 1;
+
+    /**
+     * 邮件状态:多次重试后仍发送失败
+     */
+    Integer MAIL_STATUS_FAILED = -1;
+
+    /**
+     * 邮件状态:等待合并到管理员的评论摘要,content 为单条评论的内容
+     */
+    Integer MAIL_STATUS_DIGEST = 2;
+
     String AGREE = "agree";
     String DISAGREE = "disagree";
 
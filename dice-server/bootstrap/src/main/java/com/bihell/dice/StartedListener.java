@@ -1,6 +1,10 @@
 package com.bihell.dice;
 
 import com.bihell.dice.blog.service.blog.OptionService;
+import com.bihell.dice.blog.service.snapshot.SnapshotService;
+import com.bihell.dice.blog.service.warmup.WarmUpService;
+import com.bihell.dice.config.properties.DiceSnapshotProperties;
+import com.bihell.dice.config.properties.DiceWarmUpProperties;
 import com.bihell.dice.config.properties.SwaggerProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -29,8 +33,23 @@ public class StartedListener implements ApplicationListener<ApplicationStartedEv
 
     private final SwaggerProperties swaggerProperties;
 
+    private final WarmUpService warmUpService;
+
+    private final DiceWarmUpProperties warmUpProperties;
+
+    private final SnapshotService snapshotService;
+
+    private final DiceSnapshotProperties snapshotProperties;
+
     @Override
     public void onApplicationEvent(@NotNull ApplicationStartedEvent event) {
+        // 预热完成前就绪状态保持为 REFUSING_TRAFFIC
+        if (warmUpProperties.isEnable()) {
+            warmUpService.warmUp();
+        }
+        if (snapshotProperties.isEnable()) {
+            snapshotService.exportAll();
+        }
         // save halo version to database
         this.printStartInfo();
     }
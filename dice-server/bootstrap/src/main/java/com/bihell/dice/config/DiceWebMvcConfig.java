@@ -1,6 +1,13 @@
 package com.bihell.dice.config;
 
 import com.alibaba.fastjson.JSON;
+import com.bihell.dice.blog.interceptor.ArticleHitInterceptor;
+import com.bihell.dice.framework.cache.ResponseBodyCache;
+import com.bihell.dice.framework.cache.filter.ResponseBodyCacheFilter;
+import com.bihell.dice.framework.cache.interceptor.HttpCacheInterceptor;
+import com.bihell.dice.framework.ratelimit.interceptor.RateLimitInterceptor;
+import com.bihell.dice.framework.snapshot.SnapshotStore;
+import com.bihell.dice.framework.snapshot.filter.SnapshotFilter;
 import com.bihell.dice.system.interceptor.DownloadInterceptor;
 import com.bihell.dice.system.interceptor.ResourceInterceptor;
 import com.bihell.dice.system.interceptor.UploadInterceptor;
@@ -37,6 +44,12 @@ public class DiceWebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private DiceProperties diceProperties;
 
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private SnapshotStore snapshotStore;
+
     /**
      * Filter配置
      */
@@ -81,6 +94,41 @@ public class DiceWebMvcConfig implements WebMvcConfigurer {
         return filterRegistrationBean;
     }
 
+    /**
+     * ResponseBodyCacheFilter配置
+     *
+     * @return
+     */
+    @Bean
+    public FilterRegistrationBean responseBodyCacheFilter() {
+        DiceFilterProperties.FilterConfig responseCacheFilterConfig = filterConfig.getResponseCache();
+        FilterRegistrationBean filterRegistrationBean = new FilterRegistrationBean();
+        filterRegistrationBean.setFilter(new ResponseBodyCacheFilter(responseBodyCache));
+        filterRegistrationBean.setEnabled(responseCacheFilterConfig.isEnable());
+        filterRegistrationBean.addUrlPatterns(responseCacheFilterConfig.getUrlPatterns());
+        filterRegistrationBean.setOrder(responseCacheFilterConfig.getOrder());
+        filterRegistrationBean.setAsyncSupported(responseCacheFilterConfig.isAsync());
+        return filterRegistrationBean;
+    }
+
+    /**
+     * SnapshotFilter配置
+     *
+     * @return
+     */
+    @Bean
+    public FilterRegistrationBean snapshotFilter() {
+        DiceFilterProperties.FilterConfig snapshotFilterConfig = filterConfig.getSnapshot();
+        FilterRegistrationBean filterRegistrationBean = new FilterRegistrationBean();
+        // 快照请求不经过拦截器,文章点击量在返回快照后记录
+        filterRegistrationBean.setFilter(new SnapshotFilter(snapshotStore, diceProperties.getSnapshot().getPrefix(),
+                interceptorConfig.getArticleHit().isEnable() ? articleHitInterceptor()::snapshotServed : null));
+        filterRegistrationBean.setEnabled(snapshotFilterConfig.isEnable());
+        filterRegistrationBean.addUrlPatterns(snapshotFilterConfig.getUrlPatterns());
+        filterRegistrationBean.setOrder(snapshotFilterConfig.getOrder());
+        filterRegistrationBean.setAsyncSupported(snapshotFilterConfig.isAsync());
+        return filterRegistrationBean;
+    }
 
     /**
      * 自定义权限拦截器
@@ -123,6 +171,36 @@ public class DiceWebMvcConfig implements WebMvcConfigurer {
     }
 
 
+    /**
+     * 文章点击量拦截器
+     *
+     * @return
+     */
+    @Bean
+    public ArticleHitInterceptor articleHitInterceptor() {
+        return new ArticleHitInterceptor();
+    }
+
+    /**
+     * 前台读接口 HTTP 缓存拦截器
+     *
+     * @return
+     */
+    @Bean
+    public HttpCacheInterceptor httpCacheInterceptor() {
+        return new HttpCacheInterceptor();
+    }
+
+    /**
+     * 限流拦截器
+     *
+     * @return
+     */
+    @Bean
+    public RateLimitInterceptor rateLimitInterceptor() {
+        return new RateLimitInterceptor();
+    }
+
     @PostConstruct
     public void init() {
         filterConfig = diceProperties.getFilter();
@@ -133,6 +211,12 @@ public class DiceWebMvcConfig implements WebMvcConfigurer {
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // 限流拦截器注册,放在最前面
+        if (interceptorConfig.getRateLimit().isEnable()) {
+            registry.addInterceptor(rateLimitInterceptor())
+                    .addPathPatterns(interceptorConfig.getRateLimit().getIncludePaths());
+        }
+
         // 上传拦截器
         if (interceptorConfig.getUpload().isEnable()) {
             registry.addInterceptor(uploadInterceptor())
@@ -151,6 +235,18 @@ public class DiceWebMvcConfig implements WebMvcConfigurer {
                     .addPathPatterns(interceptorConfig.getDownload().getIncludePaths());
         }
 
+        // 文章点击量拦截器注册,需要在HTTP缓存拦截器之前
+        if (interceptorConfig.getArticleHit().isEnable()) {
+            registry.addInterceptor(articleHitInterceptor())
+                    .addPathPatterns(interceptorConfig.getArticleHit().getIncludePaths());
+        }
+
+        // HTTP缓存拦截器注册
+        if (interceptorConfig.getHttpCache().isEnable()) {
+            registry.addInterceptor(httpCacheInterceptor())
+                    .addPathPatterns(interceptorConfig.getHttpCache().getIncludePaths());
+        }
+
         // 自定义权限拦截器注册
         if (interceptorConfig.getPermission().isEnable()) {
             registry.addInterceptor(permissionInterceptor())
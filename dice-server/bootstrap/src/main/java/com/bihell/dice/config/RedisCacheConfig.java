@@ -1,14 +1,24 @@
 package com.bihell.dice.config;
 
-import org.springframework.cache.CacheManager;
+import com.bihell.dice.config.properties.DiceCacheProperties;
+import com.bihell.dice.framework.cache.RefreshingCacheResolver;
+import com.bihell.dice.framework.cache.TwoLevelCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheResolver;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 
 import java.time.Duration;
 import java.util.*;
@@ -22,6 +32,13 @@ import java.util.*;
 @EnableCaching
 public class RedisCacheConfig extends CachingConfigurerSupport {
 
+    private static final String JSON_SERIALIZER = "json";
+
+    private static final String JDK_SERIALIZER = "jdk";
+
+    @Autowired
+    private ObjectProvider<TwoLevelCacheManager> cacheManagerProvider;
+
     @Bean
     @Override
     public KeyGenerator keyGenerator() {
@@ -37,32 +54,62 @@ public class RedisCacheConfig extends CachingConfigurerSupport {
     }
 
 
+    /**
+     * 为两级缓存绑定后台刷新时重新调用 @Cacheable 方法的代理
+     */
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory factory) {
-        // 生成一个默认配置，通过config对象即可对缓存进行自定义配置
-        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig();
-        // 设置缓存的默认过期时间，也是使用Duration设置
-        // 过期时间5分钟
-        config = config.entryTtl(Duration.ofMinutes(5));
+    @Override
+    public CacheResolver cacheResolver() {
+        return new RefreshingCacheResolver(cacheManagerProvider.getObject());
+    }
 
-        // 设置一个初始化的缓存空间set集合
-        Set<String> cacheNames =  new HashSet<>();
-        cacheNames.add("my-redis-cache1");
-        cacheNames.add("my-redis-cache2");
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory factory, RedisTemplate<Object, Object> redisTemplate,
+                                             DiceCacheProperties cacheProperties) {
+        // 生成一个默认配置，通过config对象即可对缓存进行自定义配置
+        RedisCacheConfiguration config = cacheConfig(RedisCacheConfiguration.defaultCacheConfig(),
+                cacheProperties.getTtl(), cacheProperties.isCacheNullValues(), cacheProperties.getSerializer());
 
-        // 对每个缓存空间应用不同的配置
+        // 对每个缓存空间应用不同的配置，未配置的项使用默认值
         Map<String, RedisCacheConfiguration> configMap = new HashMap<>(10);
-        configMap.put("my-redis-cache1", config);
-        configMap.put("my-redis-cache2", config.entryTtl(Duration.ofSeconds(120)));
+        cacheProperties.getCaches().forEach((name, spec) -> configMap.put(name, cacheConfig(config,
+                spec.getTtl(),
+                null != spec.getCacheNullValues() ? spec.getCacheNullValues() : cacheProperties.isCacheNullValues(),
+                spec.getSerializer())));
+
+        // redis缓存之前加一层本地缓存
+        return new TwoLevelCacheManager(factory, config, configMap, redisTemplate, cacheProperties);
+    }
 
-        // 使用自定义的缓存配置初始化一个cacheManager
-        RedisCacheManager cacheManager = RedisCacheManager.builder(factory)
-                // 注意这两句的调用顺序，一定要先调用该方法设置初始化的缓存名，再初始化相关的配置
-                .initialCacheNames(cacheNames)
-                .withInitialCacheConfigurations(configMap)
-                .build();
+    /**
+     * 订阅其他节点发出的本地缓存失效消息
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheMessageListenerContainer(RedisConnectionFactory factory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       DiceCacheProperties cacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(cacheManager, new ChannelTopic(cacheProperties.getTopic()));
+        return container;
+    }
 
-        return cacheManager;
+    private RedisCacheConfiguration cacheConfig(RedisCacheConfiguration base, Long ttl, boolean cacheNullValues, String serializer) {
+        RedisCacheConfiguration config = base;
+        if (null != ttl) {
+            config = config.entryTtl(Duration.ofSeconds(ttl));
+        }
+        if (!cacheNullValues) {
+            config = config.disableCachingNullValues();
+        }
+        if (JSON_SERIALIZER.equals(serializer)) {
+            config = config.serializeValuesWith(RedisSerializationContext.SerializationPair
+                    .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+        } else if (JDK_SERIALIZER.equals(serializer)) {
+            config = config.serializeValuesWith(RedisSerializationContext.SerializationPair
+                    .fromSerializer(new JdkSerializationRedisSerializer()));
+        }
+        return config;
     }
 
 }
@@ -0,0 +1,50 @@
+package com.bihell.dice.service;
+
+import com.bihell.dice.blog.model.system.MailOutbox;
+import com.bihell.dice.blog.service.message.CachedMailSender;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CachedMailSenderTests {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("admin@localhost", "admin", "secret"));
+
+    @Test
+    public void sendBatch() {
+        CachedMailSender sender = new CachedMailSender();
+        int port = ServerSetupTest.SMTP.getPort();
+        assertTrue(sender.configure("localhost", port, "admin", "secret", 5000));
+        assertFalse(sender.configure("localhost", port, "admin", "secret", 5000));
+
+        Map<Integer, Exception> failures = sender.send(Arrays.asList(mail(1, "a@localhost"), mail(2, "b@localhost")));
+        assertTrue(failures.isEmpty());
+        assertEquals(2, greenMail.getReceivedMessages().length);
+
+        assertTrue(sender.configure("localhost", port, "admin", "changed", 5000));
+    }
+
+    @Test
+    public void sendToUnavailableServer() {
+        CachedMailSender sender = new CachedMailSender();
+        sender.configure("localhost", ServerSetupTest.SMTP.getPort() + 1, "admin", "secret", 1000);
+
+        Map<Integer, Exception> failures = sender.send(Arrays.asList(mail(1, "a@localhost"), mail(2, "b@localhost")));
+        assertEquals(2, failures.size());
+    }
+
+    private MailOutbox mail(Integer id, String to) {
+        return new MailOutbox().setId(id).setRecipient(to).setSubject("测试邮件").setContent("<p>测试邮件内容</p>");
+    }
+}
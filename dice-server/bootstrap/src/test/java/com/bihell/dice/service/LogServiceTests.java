@@ -1,6 +1,8 @@
 package com.bihell.dice.service;
 
+import com.bihell.dice.blog.model.system.Log;
 import com.bihell.dice.blog.service.system.LogService;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,4 +19,12 @@ public class LogServiceTests {
     public void getLogs(){
         logService.getLogs(1,2);
     }
+
+    @Test
+    public void getLogsByCursor(){
+        CursorPaging<Log> first = logService.getLogs("", 2);
+        if (first.isHasMore()) {
+            System.out.println(logService.getLogs(first.getNextCursor(), 2));
+        }
+    }
 }
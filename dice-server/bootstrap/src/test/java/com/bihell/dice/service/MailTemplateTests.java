@@ -0,0 +1,41 @@
+package com.bihell.dice.service;
+
+import com.bihell.dice.blog.utils.MailTemplate;
+import com.bihell.dice.config.constant.DiceConsts;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MailTemplateTests {
+
+    @Test
+    public void render() {
+        MailTemplate template = MailTemplate.compile("$5 ${name}:$!{items}${missing}{x}");
+        Map<String, String> params = new HashMap<>(4);
+        params.put("name", "<b>tpxcer</b>");
+        params.put("items", "<p>1</p>");
+        assertEquals("$5 &lt;b&gt;tpxcer&lt;/b&gt;:<p>1</p>{x}", template.render(params));
+    }
+
+    @Test
+    public void renderDigest() {
+        Map<String, String> item = new HashMap<>(8);
+        item.put("name", "tpxcer");
+        item.put("content", "测试邮件内容");
+        item.put("website", "https://bihell.com/");
+        item.put("articleId", "1");
+        String items = MailTemplate.compile(DiceConsts.EMAIL_TEMPLATE_ADMIN_DIGEST_ITEM).render(item);
+        assertEquals("<p>来自tpxcer的评论：测试邮件内容</p><a href=\"https://bihell.com/article/1\">查看详情</a><br>", items);
+
+        Map<String, String> params = new HashMap<>(4);
+        params.put("websiteName", "Dice");
+        params.put("count", "2");
+        params.put("items", items + items);
+        String content = MailTemplate.compile(DiceConsts.EMAIL_TEMPLATE_ADMIN_DIGEST).render(params);
+        assertEquals("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Dice Email</title></head><body>" +
+                "<h3>Dice有2条新的评论回复</h3>" + items + items + "</body></html>", content);
+    }
+}
@@ -0,0 +1,49 @@
+package com.bihell.dice.service;
+
+import com.bihell.dice.framework.ratelimit.TrustedProxies;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TrustedProxiesTests {
+
+    private final TrustedProxies trustedProxies = new TrustedProxies(Arrays.asList("127.0.0.1", "10.0.0.0/8", "::1"));
+
+    @Test
+    public void ignoreHeaderFromUntrustedClient() {
+        MockHttpServletRequest request = request("203.0.113.7", "198.51.100.1");
+        assertEquals("203.0.113.7", trustedProxies.clientIp(request));
+    }
+
+    @Test
+    public void takeRightMostUntrustedHop() {
+        MockHttpServletRequest request = request("127.0.0.1", "1.1.1.1, 198.51.100.1, 10.1.2.3");
+        assertEquals("198.51.100.1", trustedProxies.clientIp(request));
+    }
+
+    @Test
+    public void allHopsTrusted() {
+        MockHttpServletRequest request = request("::1", "10.0.0.2");
+        assertEquals("10.0.0.2", trustedProxies.clientIp(request));
+        assertEquals("127.0.0.1", trustedProxies.clientIp(request("127.0.0.1", null)));
+    }
+
+    @Test
+    public void noTrustedProxies() {
+        TrustedProxies none = new TrustedProxies(Collections.emptyList());
+        assertEquals("127.0.0.1", none.clientIp(request("127.0.0.1", "198.51.100.1")));
+    }
+
+    private MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (null != forwardedFor) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+}
@@ -42,4 +42,46 @@ public interface CommonRedisKey {
      * verify.code:666666
      */
     String VERIFY_CODE = "verify.code:%s";
+
+    /**
+     * 文章归档索引,hash结构 articleId -> 归档文章
+     * blog:archive:index
+     */
+    String ARCHIVE_INDEX = "blog:archive:index";
+
+    /**
+     * 文章归档索引的版本,每次增量更新前递增,用于发现和重建并发的更新
+     * blog:archive:version
+     */
+    String ARCHIVE_INDEX_VERSION = "blog:archive:version";
+
+    /**
+     * 各节点汇总的待写入文章点击量,hash结构 articleId -> 点击量
+     * blog:hits:pending
+     */
+    String ARTICLE_HITS_PENDING = "blog:hits:pending";
+
+    /**
+     * 正在写入数据库的文章点击量
+     * blog:hits:flushing
+     */
+    String ARTICLE_HITS_FLUSHING = "blog:hits:flushing";
+
+    /**
+     * 文章点击量写入数据库的锁
+     * blog:hits:lock
+     */
+    String ARTICLE_HITS_LOCK = "blog:hits:lock";
+
+    /**
+     * 写入暂存评论的锁
+     * blog:comment:staging:lock
+     */
+    String COMMENT_STAGING_LOCK = "blog:comment:staging:lock";
+
+    /**
+     * 发送发件箱邮件的锁
+     * blog:mail:outbox:lock
+     */
+    String MAIL_OUTBOX_LOCK = "blog:mail:outbox:lock";
 }
@@ -1,7 +1,6 @@
 package com.bihell.dice.config.constant;
 
 import java.io.File;
-import java.util.Map;
 
 /**
  * 常量工具类  todo 部分常量需要调整
@@ -15,6 +14,11 @@ public interface DiceConsts {
      */
     String PAGE_SIZE = "13";
 
+    /**
+     * 前台分页每页最大数量
+     */
+    int MAX_PAGE_SIZE = 100;
+
     /**
      * 文章标题最大字数
      */
@@ -28,13 +32,23 @@ public interface DiceConsts {
     /**
      * 默认预览字数
      */
-    Integer MAX_PREVIEW_COUNT = 255;
+    int MAX_PREVIEW_COUNT = 255;
 
     /**
      * 默认预览标记
      */
     String PREVIEW_FLAG = "<!--read more-->";
 
+    /**
+     * markdown 渲染版本,修改 markdown 扩展设置后需要递增,已保存的渲染结果会被重新渲染
+     */
+    Integer MARKDOWN_RENDER_VERSION = 1;
+
+    /**
+     * markdown 渲染结果缓存的最大字节数
+     */
+    Long MARKDOWN_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+
     /**
      * 评论最大字数
      */
@@ -56,17 +70,6 @@ public interface DiceConsts {
     Integer MAX_COMMENT_WEBSITE_COUNT = 255;
 
 
-    /**
-     * 文章缓存key
-     */
-    String CACHE_ARTICLE_HITS = "cache_article_hits";
-
-    /**
-     * 文章点击量缓存数
-     */
-    Integer CACHE_ARTICLE_HITS_SAVE = 3;
-
-
     /**
      * 发送邮件的标题
      */
@@ -103,54 +106,58 @@ public interface DiceConsts {
     String MEDIA_THUMBNAIL_SUFFIX = "_thumbnail";
 
     /**
-     * 获取发送给管理员的邮件内容
-     *
-     * @param params 填充的参数
-     * @return 邮件内容
-     */
-    static String getEmailTemplateAdminContent(Map<String, String> params) {
-        String emptyString = "";
-        String websiteName = params.getOrDefault("websiteName", emptyString);
-        String name = params.getOrDefault("name", emptyString);
-        String content = params.getOrDefault("content", emptyString);
-        String website = params.getOrDefault("website", emptyString);
-        String articleId = params.getOrDefault("articleId", emptyString);
-
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "<meta charset=\"UTF-8\">" +
-                "<title>" + websiteName + " Email</title>" +
-                "</head>" +
-                "<body>" +
-                "<h3>" + websiteName + "有新的评论回复</h3>" +
-                "<p>来自" + name + "的评论：" + content + "</p>" +
-                "<br>" +
-                "<a href=\"" + website + "article/" + articleId + "\">查看详情</a>" +
-                "</body>" +
-                "</html>";
-    }
-
-    static String getEmailTemplateUserContent(Map<String, String> params) {
-        String emptyString = "";
-        String websiteName = params.getOrDefault("websiteName", emptyString);
-        String name = params.getOrDefault("name", emptyString);
-        String content = params.getOrDefault("content", emptyString);
-        String website = params.getOrDefault("website", emptyString);
-        String articleId = params.getOrDefault("articleId", emptyString);
-
-        return "<!DOCTYPE html>" +
-                "<html>" +
-                "<head>" +
-                "    <meta charset=\"UTF-8\">" +
-                "    <title>" + websiteName + " Email</title>" +
-                "</head>" +
-                "<body>" +
-                "<h3>你在" + websiteName + "的评论有人回复了,快去查看吧!</h3>" +
-                "<p>来自" + name + "的评论：" + content + "</p>" +
-                "<br>" +
-                "<a href=\"" + website + "article/" + articleId + "\">查看详情</a>" +
-                "</body>" +
-                "</html>";
-    }
+     * 发送给管理员的邮件模板,${name} 填充时转义html,$!{name} 原样填充
+     */
+    String EMAIL_TEMPLATE_ADMIN = "<!DOCTYPE html>" +
+            "<html>" +
+            "<head>" +
+            "<meta charset=\"UTF-8\">" +
+            "<title>${websiteName} Email</title>" +
+            "</head>" +
+            "<body>" +
+            "<h3>${websiteName}有新的评论回复</h3>" +
+            "<p>来自${name}的评论：${content}</p>" +
+            "<br>" +
+            "<a href=\"${website}article/${articleId}\">查看详情</a>" +
+            "</body>" +
+            "</html>";
+
+    /**
+     * 发送给被评论用户的邮件模板
+     */
+    String EMAIL_TEMPLATE_USER = "<!DOCTYPE html>" +
+            "<html>" +
+            "<head>" +
+            "    <meta charset=\"UTF-8\">" +
+            "    <title>${websiteName} Email</title>" +
+            "</head>" +
+            "<body>" +
+            "<h3>你在${websiteName}的评论有人回复了,快去查看吧!</h3>" +
+            "<p>来自${name}的评论：${content}</p>" +
+            "<br>" +
+            "<a href=\"${website}article/${articleId}\">查看详情</a>" +
+            "</body>" +
+            "</html>";
+
+    /**
+     * 发送给管理员的评论摘要邮件模板,items 为 {@link #EMAIL_TEMPLATE_ADMIN_DIGEST_ITEM} 拼接的结果
+     */
+    String EMAIL_TEMPLATE_ADMIN_DIGEST = "<!DOCTYPE html>" +
+            "<html>" +
+            "<head>" +
+            "<meta charset=\"UTF-8\">" +
+            "<title>${websiteName} Email</title>" +
+            "</head>" +
+            "<body>" +
+            "<h3>${websiteName}有${count}条新的评论回复</h3>" +
+            "$!{items}" +
+            "</body>" +
+            "</html>";
+
+    /**
+     * 评论摘要邮件中的一条评论
+     */
+    String EMAIL_TEMPLATE_ADMIN_DIGEST_ITEM = "<p>来自${name}的评论：${content}</p>" +
+            "<a href=\"${website}article/${articleId}\">查看详情</a>" +
+            "<br>";
 }
@@ -0,0 +1,105 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存配置属性
+ * <p>
+ * 本地缓存(L1)在 redis 缓存(L2)之前,多节点之间通过 redis 发布订阅使本地缓存失效
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.cache")
+public class DiceCacheProperties {
+
+    /**
+     * 是否启用本地缓存
+     */
+    private boolean localEnable = true;
+
+    /**
+     * 本地缓存默认过期时间(秒)
+     */
+    private Long localTtl = 60L;
+
+    /**
+     * 本地缓存默认最大权重,每个条目按1计算,集合和分页结果按元素数量计算
+     */
+    private Long localMaxWeight = 10000L;
+
+    /**
+     * redis 缓存默认过期时间(秒)
+     */
+    private Long ttl = 300L;
+
+    /**
+     * 是否缓存空值
+     */
+    private boolean cacheNullValues = true;
+
+    /**
+     * redis 缓存值的序列化方式: jdk 或 json
+     */
+    private String serializer = "jdk";
+
+    /**
+     * 缓存未命中时是否加跨节点的锁,只由一个节点加载
+     */
+    private boolean loadLockEnable = true;
+
+    /**
+     * 加载锁的过期时间(毫秒)
+     */
+    private Long loadLockTimeout = 5000L;
+
+    /**
+     * 等待其他节点加载的最长时间(毫秒),超时后自己加载
+     */
+    private Long loadWaitTimeout = 3000L;
+
+    /**
+     * 等待时查询 redis 的间隔(毫秒)
+     */
+    private Long loadWaitInterval = 50L;
+
+    /**
+     * 后台刷新的线程数
+     */
+    private Integer refreshThreads = 2;
+
+    /**
+     * 后台刷新的队列长度,队列满时放弃刷新
+     */
+    private Integer refreshQueueSize = 100;
+
+    /**
+     * 热点key的刷新间隔(毫秒)
+     */
+    private Long refreshInterval = 60000L;
+
+    /**
+     * 定时刷新的热点key,格式为 缓存名称:key,key 不包含标签版本号
+     */
+    private List<String> hotKeys = new ArrayList<>();
+
+    /**
+     * 本地缓存失效消息的 redis 频道
+     */
+    private String topic = "dice:cache:invalidate";
+
+    /**
+     * 按缓存名称覆盖默认配置
+     */
+    @NestedConfigurationProperty
+    private Map<String, DiceCacheSpecProperties> caches = new HashMap<>();
+}
@@ -0,0 +1,42 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+
+/**
+ * 单个缓存的配置,未配置的项使用 dice.cache 下的默认值
+ *
+ * @author bihell
+ */
+@Data
+public class DiceCacheSpecProperties {
+
+    /**
+     * 本地缓存过期时间(秒)
+     */
+    private Long localTtl;
+
+    /**
+     * 本地缓存最大权重
+     */
+    private Long localMaxWeight;
+
+    /**
+     * redis 缓存过期时间(秒)
+     */
+    private Long ttl;
+
+    /**
+     * 软过期时间(秒),超过后返回旧值并在后台刷新,为空时不启用
+     */
+    private Long softTtl;
+
+    /**
+     * 是否缓存空值
+     */
+    private Boolean cacheNullValues;
+
+    /**
+     * redis 缓存值的序列化方式: jdk 或 json
+     */
+    private String serializer;
+}
@@ -0,0 +1,61 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 评论异步写入配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.comment-ingest")
+public class DiceCommentIngestProperties {
+
+    /**
+     * 是否异步写入评论,关闭时在请求线程中保存
+     */
+    private boolean enable = true;
+
+    /**
+     * 内存队列容量
+     */
+    private Integer queueCapacity = 1000;
+
+    /**
+     * 写入线程数
+     */
+    private Integer workers = 2;
+
+    /**
+     * 每批最多写入的评论数量
+     */
+    private Integer batchSize = 100;
+
+    /**
+     * 等待凑批的时间(毫秒)
+     */
+    private Long batchWait = 200L;
+
+    /**
+     * 队列已满时是否暂存到 comment_staging 表,不暂存时直接返回503
+     */
+    private boolean stagingEnable = true;
+
+    /**
+     * 转存暂存评论的间隔(毫秒)
+     */
+    private Long stagingInterval = 10000L;
+
+    /**
+     * 转存暂存评论的锁超时时间(秒)
+     */
+    private Long stagingLockTimeout = 60L;
+
+    /**
+     * 单条评论最多尝试写入的次数。队列中的评论超过后移到 comment_staging 表,暂存的评论超过后丢弃并记录日志
+     */
+    private Integer maxAttempts = 3;
+}
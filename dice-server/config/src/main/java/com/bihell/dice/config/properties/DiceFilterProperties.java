@@ -26,6 +26,18 @@ public class DiceFilterProperties {
     @NestedConfigurationProperty
     private FilterConfig xss = new FilterConfig();
 
+    /**
+     * 响应体缓存 Filter配置
+     */
+    @NestedConfigurationProperty
+    private FilterConfig responseCache = new FilterConfig();
+
+    /**
+     * 静态快照 Filter配置
+     */
+    @NestedConfigurationProperty
+    private FilterConfig snapshot = new FilterConfig();
+
     @Data
     public static class FilterConfig {
 
@@ -0,0 +1,41 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文章点击量配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.hits")
+public class DiceHitsProperties {
+
+    /**
+     * 点击量写入数据库的间隔(毫秒)
+     */
+    private Long flushInterval = 10000L;
+
+    /**
+     * 每条 update 语句最多更新的文章数量
+     */
+    private Integer batchSize = 500;
+
+    /**
+     * 是否先汇总到 redis 再由一个节点写入数据库,多节点部署时启用
+     */
+    private boolean redisEnable = false;
+
+    /**
+     * redis 模式下写入数据库的锁超时时间(秒)
+     */
+    private Long redisLockTimeout = 30L;
+
+    /**
+     * 检查已发布文章是否变化的间隔(毫秒),只统计已发布文章的点击
+     */
+    private Long publishedCheckInterval = 10000L;
+}
@@ -0,0 +1,54 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 前台接口 HTTP 缓存配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.http-cache")
+public class DiceHttpCacheProperties {
+
+    /**
+     * 是否启用 ETag / Last-Modified 条件请求
+     */
+    private boolean enable = true;
+
+    /**
+     * 默认的 Cache-Control
+     */
+    private String cacheControl = "no-cache";
+
+    /**
+     * 按接口名称覆盖 Cache-Control
+     */
+    private Map<String, String> endpoints = new HashMap<>();
+
+    /**
+     * 是否缓存序列化、压缩后的响应体
+     */
+    private boolean bodyCacheEnable = true;
+
+    /**
+     * 响应体缓存的最大字节数
+     */
+    private Long bodyCacheMaxBytes = 32L * 1024 * 1024;
+
+    /**
+     * 响应体缓存的过期时间(秒)
+     */
+    private Long bodyCacheTtl = 600L;
+
+    /**
+     * 响应体超过该字节数时保存 gzip 压缩结果
+     */
+    private Integer compressMinBytes = 512;
+}
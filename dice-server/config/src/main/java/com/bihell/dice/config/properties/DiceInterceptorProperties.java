@@ -43,6 +43,24 @@ public class DiceInterceptorProperties {
     @NestedConfigurationProperty
     private InterceptorConfig download = new InterceptorConfig();
 
+    /**
+     * 文章点击量拦截器
+     */
+    @NestedConfigurationProperty
+    private InterceptorConfig articleHit = new InterceptorConfig();
+
+    /**
+     * 前台读接口 HTTP 缓存拦截器
+     */
+    @NestedConfigurationProperty
+    private InterceptorConfig httpCache = new InterceptorConfig();
+
+    /**
+     * 限流拦截器
+     */
+    @NestedConfigurationProperty
+    private InterceptorConfig rateLimit = new InterceptorConfig();
+
     @Data
     public static class InterceptorConfig {
 
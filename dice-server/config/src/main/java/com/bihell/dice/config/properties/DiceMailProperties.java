@@ -0,0 +1,66 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 邮件发件箱配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.mail")
+public class DiceMailProperties {
+
+    /**
+     * 发送发件箱邮件的间隔(毫秒)
+     */
+    private Long interval = 5000L;
+
+    /**
+     * 每批最多发送的邮件数量,一批共用一个SMTP连接
+     */
+    private Integer batchSize = 50;
+
+    /**
+     * 最多尝试发送的次数,超过后标记为发送失败
+     */
+    private Integer maxAttempts = 6;
+
+    /**
+     * 第一次重试的等待时间(秒),之后每次翻倍
+     */
+    private Long backoff = 60L;
+
+    /**
+     * 重试的最长等待时间(秒)
+     */
+    private Long maxBackoff = 3600L;
+
+    /**
+     * SMTP连接和读写超时时间(毫秒)
+     */
+    private Integer timeout = 10000;
+
+    /**
+     * 发送锁超时时间(秒)
+     */
+    private Long lockTimeout = 120L;
+
+    /**
+     * 是否合并发送给管理员的评论提醒,关闭时每条评论一封邮件
+     */
+    private boolean digestEnable = true;
+
+    /**
+     * 评论提醒最长合并时间(秒),第一条评论等待超过该时间后发送
+     */
+    private Long digestWindow = 300L;
+
+    /**
+     * 每封摘要邮件最多合并的评论数量,攒够后立即发送
+     */
+    private Integer digestMaxComments = 20;
+}
@@ -102,6 +102,66 @@ public class DiceProperties {
     @NestedConfigurationProperty
     private DiceCorsProperties cors = new DiceCorsProperties();
 
+    /**
+     * 全文检索配置
+     */
+    @NestedConfigurationProperty
+    private DiceSearchProperties search = new DiceSearchProperties();
+
+    /**
+     * 文章点击量配置
+     */
+    @NestedConfigurationProperty
+    private DiceHitsProperties hits = new DiceHitsProperties();
+
+    /**
+     * 评论顶踩配置
+     */
+    @NestedConfigurationProperty
+    private DiceVotesProperties votes = new DiceVotesProperties();
+
+    /**
+     * 评论异步写入配置
+     */
+    @NestedConfigurationProperty
+    private DiceCommentIngestProperties commentIngest = new DiceCommentIngestProperties();
+
+    /**
+     * 限流配置
+     */
+    @NestedConfigurationProperty
+    private DiceRateLimitProperties rateLimit = new DiceRateLimitProperties();
+
+    /**
+     * 邮件发件箱配置
+     */
+    @NestedConfigurationProperty
+    private DiceMailProperties mail = new DiceMailProperties();
+
+    /**
+     * 缓存配置
+     */
+    @NestedConfigurationProperty
+    private DiceCacheProperties cache = new DiceCacheProperties();
+
+    /**
+     * 前台接口 HTTP 缓存配置
+     */
+    @NestedConfigurationProperty
+    private DiceHttpCacheProperties httpCache = new DiceHttpCacheProperties();
+
+    /**
+     * 启动预热配置
+     */
+    @NestedConfigurationProperty
+    private DiceWarmUpProperties warmUp = new DiceWarmUpProperties();
+
+    /**
+     * 静态快照配置
+     */
+    @NestedConfigurationProperty
+    private DiceSnapshotProperties snapshot = new DiceSnapshotProperties();
+
     /**
      * Swagger路径 todo
      */
@@ -0,0 +1,49 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 限流配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.rate-limit")
+public class DiceRateLimitProperties {
+
+    /**
+     * 是否使用 redis 中的令牌桶,多节点部署时启用,redis 不可用时使用本地令牌桶
+     */
+    private boolean redisEnable = false;
+
+    /**
+     * 本地最多保存的令牌桶数量
+     */
+    private Long maxKeys = 100000L;
+
+    /**
+     * 令牌桶多久未访问后移除(秒)
+     */
+    private Long expire = 600L;
+
+    /**
+     * 受信任的反向代理,IP或CIDR。直连地址属于这些代理时才从 X-Forwarded-For 取客户端地址,
+     * 取最右边一个不属于这些代理的地址。为空时只使用直连地址
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    /**
+     * 按 @RateLimit 名称配置的限流
+     */
+    @NestedConfigurationProperty
+    private Map<String, DiceRateLimitSpecProperties> limits = new HashMap<>();
+}
@@ -0,0 +1,27 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+
+/**
+ * 单个限流的配置,未配置的项使用 @RateLimit 注解中的值
+ *
+ * @author bihell
+ */
+@Data
+public class DiceRateLimitSpecProperties {
+
+    /**
+     * 是否启用
+     */
+    private Boolean enable;
+
+    /**
+     * 令牌桶容量,即允许的突发请求数
+     */
+    private Integer capacity;
+
+    /**
+     * 每秒补充的令牌数
+     */
+    private Double rate;
+}
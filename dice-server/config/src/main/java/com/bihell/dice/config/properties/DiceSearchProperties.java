@@ -0,0 +1,46 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 全文检索配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.search")
+public class DiceSearchProperties {
+
+    /**
+     * 是否启用全文检索,不启用时后台搜索使用 like 查询
+     */
+    private boolean enable = true;
+
+    /**
+     * 索引目录
+     */
+    private String indexFolder = "/opt/dice/index/";
+
+    /**
+     * 高亮摘要的长度
+     */
+    private Integer fragmentSize = 120;
+
+    /**
+     * 后台搜索最多返回的匹配数量
+     */
+    private Integer maxMatches = 1000;
+
+    /**
+     * 前台搜索最多能翻到的结果数量,超过的页返回空列表
+     */
+    private Integer maxResultWindow = 1000;
+
+    /**
+     * 重建索引时每批读取的数量
+     */
+    private Integer rebuildBatchSize = 200;
+}
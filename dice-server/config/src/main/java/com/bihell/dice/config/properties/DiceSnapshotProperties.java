@@ -0,0 +1,36 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 前台接口静态快照配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.snapshot")
+public class DiceSnapshotProperties {
+
+    /**
+     * 是否导出快照,启用后启动时全量导出,之后按失效的缓存标签增量导出
+     */
+    private boolean enable = false;
+
+    /**
+     * 快照文件目录
+     */
+    private String path;
+
+    /**
+     * 快照对应的接口前缀
+     */
+    private String prefix = "/blog/nuxt/";
+
+    /**
+     * 增量导出的间隔(毫秒)
+     */
+    private Long flushInterval = 5000L;
+}
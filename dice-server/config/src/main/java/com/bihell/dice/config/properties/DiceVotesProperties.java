@@ -0,0 +1,26 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 评论顶踩配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.votes")
+public class DiceVotesProperties {
+
+    /**
+     * 顶踩写入数据库的间隔(毫秒)
+     */
+    private Long flushInterval = 5000L;
+
+    /**
+     * 每条 update 语句最多更新的评论数量
+     */
+    private Integer batchSize = 500;
+}
@@ -0,0 +1,41 @@
+package com.bihell.dice.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动预热配置属性
+ *
+ * @author bihell
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "dice.warm-up")
+public class DiceWarmUpProperties {
+
+    /**
+     * 是否在启动时预热缓存
+     */
+    private boolean enable = true;
+
+    /**
+     * 预热前端文章列表的页数
+     */
+    private Integer articlePages = 3;
+
+    /**
+     * 预热点击量最高的文章数量
+     */
+    private Integer topArticles = 20;
+
+    /**
+     * 预热的线程数
+     */
+    private Integer threads = 4;
+
+    /**
+     * 预热的最长时间(秒),超时后不再等待
+     */
+    private Long timeout = 60L;
+}
@@ -0,0 +1,30 @@
+package com.bihell.dice.framework.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 带写入时间的缓存值,用于判断是否超过软过期时间
+ *
+ * @author bihell
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 缓存值,空值为 NullValue
+     */
+    private Object value;
+
+    /**
+     * 写入时间(毫秒)
+     */
+    private long createTime;
+}
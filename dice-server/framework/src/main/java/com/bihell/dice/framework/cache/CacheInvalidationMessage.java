@@ -0,0 +1,35 @@
+package com.bihell.dice.framework.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 本地缓存失效消息
+ *
+ * @author bihell
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 发送消息的节点,节点忽略自己发出的消息
+     */
+    private String node;
+
+    /**
+     * 缓存名称
+     */
+    private String cacheName;
+
+    /**
+     * 缓存key,为空时清空整个缓存
+     */
+    private Object key;
+}
@@ -0,0 +1,105 @@
+package com.bihell.dice.framework.cache;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 缓存加载的跨节点锁
+ * <p>
+ * 缓存未命中时只有拿到锁的节点查询数据库,其他节点等待结果写入 redis,等待超时后自己加载
+ *
+ * @author bihell
+ */
+public class CacheLoadLock {
+
+    private static final String LOCK_KEY = "cache:lock:%s:%s";
+
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    private final long lockTimeout;
+
+    private final long waitTimeout;
+
+    private final long waitInterval;
+
+    /**
+     * @param redisTemplate redisTemplate
+     * @param lockTimeout   锁的过期时间(毫秒)
+     * @param waitTimeout   等待其他节点加载的最长时间(毫秒)
+     * @param waitInterval  等待时查询 redis 的间隔(毫秒)
+     */
+    public CacheLoadLock(RedisTemplate<Object, Object> redisTemplate, long lockTimeout, long waitTimeout, long waitInterval) {
+        this.redisTemplate = redisTemplate;
+        this.lockTimeout = lockTimeout;
+        this.waitTimeout = waitTimeout;
+        this.waitInterval = waitInterval;
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @param cacheName 缓存名称
+     * @param key       缓存key
+     * @return 加锁成功返回锁的token,否则返回null
+     */
+    public String tryLock(String cacheName, Object key) {
+        String token = UUID.randomUUID().toString();
+        Boolean locked = redisTemplate.opsForValue().setIfAbsent(lockKey(cacheName, key), token, lockTimeout, TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(locked) ? token : null;
+    }
+
+    /**
+     * 释放锁,只删除自己加的锁
+     *
+     * @param cacheName 缓存名称
+     * @param key       缓存key
+     * @param token     加锁时返回的token
+     */
+    public void unlock(String cacheName, Object key, String token) {
+        redisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey(cacheName, key)), token);
+    }
+
+    /**
+     * 等待持有锁的节点加载完成
+     *
+     * @param cacheName 缓存名称
+     * @param key       缓存key
+     * @param reader    读取加载结果,没有结果时返回null
+     * @param <T>       结果类型
+     * @return 加载结果,锁已释放但没有结果或等待超时时返回null
+     */
+    public <T> T await(String cacheName, Object key, Supplier<T> reader) {
+        long deadline = System.currentTimeMillis() + waitTimeout;
+        String lockKey = lockKey(cacheName, key);
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(waitInterval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            T value = reader.get();
+            if (null != value) {
+                return value;
+            }
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(lockKey))) {
+                // 加载失败或结果为空值且不缓存空值
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private String lockKey(String cacheName, Object key) {
+        return String.format(LOCK_KEY, cacheName, key);
+    }
+}
@@ -0,0 +1,90 @@
+package com.bihell.dice.framework.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个缓存的统计
+ *
+ * @author bihell
+ */
+public class CacheMetrics {
+
+    final LongAdder localHits = new LongAdder();
+
+    final LongAdder remoteHits = new LongAdder();
+
+    final LongAdder remoteMisses = new LongAdder();
+
+    final LongAdder puts = new LongAdder();
+
+    final LongAdder evictions = new LongAdder();
+
+    final LongAdder loads = new LongAdder();
+
+    final LongAdder loadFailures = new LongAdder();
+
+    final LongAdder loadTime = new LongAdder();
+
+    final LongAdder coalesced = new LongAdder();
+
+    final LongAdder lockWaits = new LongAdder();
+
+    final LongAdder refreshes = new LongAdder();
+
+    final LongAdder refreshFailures = new LongAdder();
+
+    final LongAdder refreshRejected = new LongAdder();
+
+    final LongAdder bytesRead = new LongAdder();
+
+    final LongAdder bytesWritten = new LongAdder();
+
+    /**
+     * 记录一次加载
+     *
+     * @param nanos   加载耗时(纳秒)
+     * @param success 是否成功
+     */
+    void recordLoad(long nanos, boolean success) {
+        loads.increment();
+        loadTime.add(nanos);
+        if (!success) {
+            loadFailures.increment();
+        }
+    }
+
+    /**
+     * 统计信息
+     *
+     * @return 命中、未命中、写入、失效、加载次数和耗时以及 redis 读写字节数
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new LinkedHashMap<>(16);
+        long hits = localHits.sum() + remoteHits.sum();
+        long requests = hits + remoteMisses.sum();
+        result.put("localHitCount", localHits.sum());
+        result.put("remoteHitCount", remoteHits.sum());
+        result.put("missCount", remoteMisses.sum());
+        result.put("hitRate", requests == 0 ? 0 : (double) hits / requests);
+        result.put("putCount", puts.sum());
+        result.put("evictCount", evictions.sum());
+        long loadCount = loads.sum();
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(loadTime.sum());
+        result.put("loadCount", loadCount);
+        result.put("loadFailureCount", loadFailures.sum());
+        result.put("loadTimeTotalMs", loadMillis);
+        result.put("loadTimeAvgMs", loadCount == 0 ? 0 : (double) loadMillis / loadCount);
+        result.put("coalescedCount", coalesced.sum());
+        result.put("lockWaitCount", lockWaits.sum());
+        result.put("refreshCount", refreshes.sum());
+        result.put("refreshFailureCount", refreshFailures.sum());
+        result.put("refreshRejectedCount", refreshRejected.sum());
+        result.put("bytesRead", bytesRead.sum());
+        result.put("bytesWritten", bytesWritten.sum());
+        result.put("avgPayloadBytes", puts.sum() == 0 ? 0 : bytesWritten.sum() / puts.sum());
+        return result;
+    }
+}
@@ -0,0 +1,36 @@
+package com.bihell.dice.framework.cache;
+
+import org.springframework.aop.support.AopUtils;
+
+import java.lang.reflect.Method;
+
+/**
+ * 后台刷新时重新调用 @Cacheable 方法
+ * <p>
+ * 通过bean的代理调用,缓存之后的拦截器(如事务)都会重新执行;只保存代理、方法和参数,不引用请求中的调用对象
+ *
+ * @author bihell
+ */
+public class CacheRefresher {
+
+    private final Object proxy;
+
+    private final Method method;
+
+    private final Object[] args;
+
+    public CacheRefresher(Object proxy, Method method, Object[] args) {
+        this.proxy = proxy;
+        this.method = method;
+        this.args = args.clone();
+    }
+
+    /**
+     * 通过代理调用方法
+     *
+     * @throws Throwable 方法抛出的异常
+     */
+    void invoke() throws Throwable {
+        AopUtils.invokeJoinpointUsingReflection(proxy, method, args);
+    }
+}
@@ -0,0 +1,160 @@
+package com.bihell.dice.framework.cache;
+
+import com.bihell.dice.framework.common.service.RedisService;
+import com.bihell.dice.framework.util.TransactionUtil;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 基于标签版本号的缓存失效
+ * <p>
+ * 每个标签(如 article:42)在 redis 中有一个版本号,缓存key带上所依赖标签的版本号。
+ * 失效时只需要增加标签的版本号,旧版本的缓存不会再被读取,由过期时间清除。
+ * 版本号前带有纪元(第一次使用时用 SETNX 写入的时间戳),redis 清空或重启导致版本号从0开始时纪元也会改变,
+ * 旧的缓存和 ETag 不会和新的版本号冲突。
+ * 在 @Cacheable 中使用: key = "@cacheTags.key('front_article['+#id+']', 'article:'+#id)"
+ *
+ * @author bihell
+ */
+@Component("cacheTags")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class CacheTags {
+
+    private static final String TAG_VERSION_KEY = "cache:tag:%s";
+
+    private static final String TAG_TIME_KEY = "cache:tag-time:%s";
+
+    private static final String EPOCH_KEY = "cache:tag-epoch";
+
+    private final RedisService redisService;
+
+    private final List<Consumer<String[]>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 生成带标签版本号的缓存key
+     *
+     * @param key  原始key
+     * @param tags 缓存依赖的标签
+     * @return key@纪元-版本号.版本号
+     */
+    public String key(String key, String... tags) {
+        List<String> versionKeys = new ArrayList<>(tags.length + 1);
+        for (String tag : tags) {
+            versionKeys.add(String.format(TAG_VERSION_KEY, tag));
+        }
+        versionKeys.add(EPOCH_KEY);
+        List<Object> versions = redisService.multiGet(versionKeys);
+        StringBuilder sb = new StringBuilder(key).append('@').append(epoch(versions, tags.length)).append('-');
+        for (int i = 0; i < tags.length; i++) {
+            Object version = null == versions ? null : versions.get(i);
+            sb.append(i > 0 ? "." : "").append(null == version ? 0 : version);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 获取标签的版本号和最后修改时间,用于生成 ETag 和 Last-Modified
+     *
+     * @param tags 标签
+     * @return Snapshot
+     */
+    public Snapshot snapshot(String... tags) {
+        List<String> keys = new ArrayList<>(tags.length * 2);
+        for (String tag : tags) {
+            keys.add(String.format(TAG_VERSION_KEY, tag));
+        }
+        for (String tag : tags) {
+            keys.add(String.format(TAG_TIME_KEY, tag));
+        }
+        keys.add(EPOCH_KEY);
+        List<Object> values = redisService.multiGet(keys);
+        StringBuilder version = new StringBuilder().append(epoch(values, tags.length * 2)).append('-');
+        long lastModified = 0;
+        for (int i = 0; i < tags.length; i++) {
+            Object tagVersion = null == values ? null : values.get(i);
+            Object tagTime = null == values ? null : values.get(i + tags.length);
+            version.append(i > 0 ? "." : "").append(null == tagVersion ? 0 : tagVersion);
+            if (tagTime instanceof Number) {
+                lastModified = Math.max(lastModified, ((Number) tagTime).longValue());
+            }
+        }
+        return new Snapshot(version.toString(), lastModified);
+    }
+
+    /**
+     * 获取纪元,不存在时用 SETNX 写入当前时间,多个节点同时写入时以先写入的为准
+     *
+     * @param values multiGet 的结果
+     * @param index  纪元在结果中的位置
+     * @return 纪元
+     */
+    private Object epoch(List<Object> values, int index) {
+        Object epoch = null == values ? null : values.get(index);
+        if (null != epoch) {
+            return epoch;
+        }
+        redisService.setIfAbsent(EPOCH_KEY, Long.toString(System.currentTimeMillis(), Character.MAX_RADIX));
+        epoch = redisService.get(EPOCH_KEY);
+        return null == epoch ? 0 : epoch;
+    }
+
+    /**
+     * 使标签下的缓存失效,事务提交后执行
+     *
+     * @param tags 标签
+     */
+    public void evict(String... tags) {
+        TransactionUtil.afterCommit(() -> evictImmediately(tags));
+    }
+
+    /**
+     * 立即使标签下的缓存失效,用于事务提交后的回调中
+     *
+     * @param tags 标签
+     */
+    public void evictImmediately(String... tags) {
+        long now = System.currentTimeMillis();
+        for (String tag : tags) {
+            redisService.increment(String.format(TAG_VERSION_KEY, tag));
+            redisService.set(String.format(TAG_TIME_KEY, tag), now);
+        }
+        for (Consumer<String[]> listener : listeners) {
+            listener.accept(tags);
+        }
+    }
+
+    /**
+     * 监听本节点上的标签失效,回调在失效的线程中执行,不应有耗时操作
+     *
+     * @param listener 参数为失效的标签
+     */
+    public void addListener(Consumer<String[]> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 标签的版本号和最后修改时间
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Snapshot {
+
+        /**
+         * 纪元和各个标签的版本号,格式为 纪元-版本号.版本号
+         */
+        private final String version;
+
+        /**
+         * 最后修改时间(毫秒),标签从未修改过时为0
+         */
+        private final long lastModified;
+    }
+}
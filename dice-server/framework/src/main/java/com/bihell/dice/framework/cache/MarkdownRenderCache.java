@@ -0,0 +1,118 @@
+package com.bihell.dice.framework.cache;
+
+import com.bihell.dice.config.constant.DiceConsts;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * markdown 渲染结果缓存
+ * <p>
+ * 以内容hash和渲染参数作为key,按渲染结果的大小(字节)限制缓存总量
+ *
+ * @author bihell
+ */
+public class MarkdownRenderCache {
+
+    /**
+     * 渲染耗时分布的区间上限(毫秒)
+     */
+    private static final long[] RENDER_TIME_BOUNDS = {1, 5, 20, 100, 500};
+
+    private static final LongAdder[] RENDER_TIME_BUCKETS = new LongAdder[RENDER_TIME_BOUNDS.length + 1];
+
+    private static final LongAdder RENDER_TIME_TOTAL = new LongAdder();
+
+    private static final Cache<String, String> CACHE = Caffeine.newBuilder()
+            .maximumWeight(DiceConsts.MARKDOWN_CACHE_MAX_BYTES)
+            // String 按每个字符两个字节估算
+            .<String, String>weigher((key, html) -> (key.length() + html.length()) * 2)
+            .recordStats()
+            .build();
+
+    static {
+        for (int i = 0; i < RENDER_TIME_BUCKETS.length; i++) {
+            RENDER_TIME_BUCKETS[i] = new LongAdder();
+        }
+    }
+
+    private MarkdownRenderCache() {
+    }
+
+    /**
+     * 获取渲染结果,缓存中没有时调用renderer渲染
+     *
+     * @param content   markdown内容
+     * @param isSummary 是否为摘要
+     * @param isHtml    是否为 html 格式
+     * @param renderer  渲染方法
+     * @return 渲染结果
+     */
+    public static String get(String content, boolean isSummary, boolean isHtml, Function<String, String> renderer) {
+        String key = DigestUtils.sha256Hex(content) + ":" + isSummary + ":" + isHtml + ":" + DiceConsts.MARKDOWN_RENDER_VERSION;
+        return CACHE.get(key, k -> timedRender(content, renderer));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void invalidateAll() {
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * 缓存统计信息
+     *
+     * @return 命中、未命中、淘汰次数,缓存大小以及渲染耗时分布
+     */
+    public static Map<String, Object> stats() {
+        CacheStats stats = CACHE.stats();
+        Map<String, Object> result = new LinkedHashMap<>(16);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("evictionWeight", stats.evictionWeight());
+        result.put("size", CACHE.estimatedSize());
+        result.put("weightedBytes", CACHE.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        result.put("maxBytes", DiceConsts.MARKDOWN_CACHE_MAX_BYTES);
+
+        long renderCount = 0;
+        Map<String, Long> renderTime = new LinkedHashMap<>(8);
+        for (int i = 0; i < RENDER_TIME_BUCKETS.length; i++) {
+            long count = RENDER_TIME_BUCKETS[i].sum();
+            String bucket = i < RENDER_TIME_BOUNDS.length ? "<=" + RENDER_TIME_BOUNDS[i] + "ms" : ">" + RENDER_TIME_BOUNDS[i - 1] + "ms";
+            renderTime.put(bucket, count);
+            renderCount += count;
+        }
+        long totalMillis = TimeUnit.NANOSECONDS.toMillis(RENDER_TIME_TOTAL.sum());
+        result.put("renderCount", renderCount);
+        result.put("renderTimeTotalMs", totalMillis);
+        result.put("renderTimeAvgMs", renderCount == 0 ? 0 : (double) totalMillis / renderCount);
+        result.put("renderTime", renderTime);
+        return result;
+    }
+
+    private static String timedRender(String content, Function<String, String> renderer) {
+        long start = System.nanoTime();
+        try {
+            return renderer.apply(content);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            RENDER_TIME_TOTAL.add(elapsed);
+            long millis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+            int i = 0;
+            while (i < RENDER_TIME_BOUNDS.length && millis > RENDER_TIME_BOUNDS[i]) {
+                i++;
+            }
+            RENDER_TIME_BUCKETS[i].increment();
+        }
+    }
+}
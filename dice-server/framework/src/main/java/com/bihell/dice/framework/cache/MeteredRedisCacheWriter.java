@@ -0,0 +1,112 @@
+package com.bihell.dice.framework.cache;
+
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 记录 redis 缓存命中和读写字节数的 {@link RedisCacheWriter}
+ *
+ * @author bihell
+ */
+public class MeteredRedisCacheWriter implements RedisCacheWriter {
+
+    /**
+     * 当前线程的读取不计入命中和未命中
+     */
+    private static final ThreadLocal<Boolean> UNMETERED = new ThreadLocal<>();
+
+    private final RedisCacheWriter delegate;
+
+    private final Function<String, CacheMetrics> metrics;
+
+    public MeteredRedisCacheWriter(RedisCacheWriter delegate, Function<String, CacheMetrics> metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        delegate.put(name, key, value, ttl);
+        recordPut(name, value);
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        byte[] value = delegate.get(name, key);
+        CacheMetrics cacheMetrics = metrics.apply(name);
+        if (null != UNMETERED.get()) {
+            if (null != value) {
+                cacheMetrics.bytesRead.add(value.length);
+            }
+        } else if (null == value) {
+            cacheMetrics.remoteMisses.increment();
+        } else {
+            cacheMetrics.remoteHits.increment();
+            cacheMetrics.bytesRead.add(value.length);
+        }
+        return value;
+    }
+
+    /**
+     * 执行读取但不计入命中和未命中,用于等待其他节点加载时的轮询,
+     * 否则一次等待会记录多次未命中
+     *
+     * @param reader 读取方法
+     * @return 读取结果
+     */
+    static <T> T unmetered(Supplier<T> reader) {
+        UNMETERED.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            UNMETERED.remove();
+        }
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        byte[] existing = delegate.putIfAbsent(name, key, value, ttl);
+        if (null == existing) {
+            recordPut(name, value);
+        }
+        return existing;
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        delegate.remove(name, key);
+        metrics.apply(name).evictions.increment();
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        delegate.clean(name, pattern);
+        metrics.apply(name).evictions.increment();
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new MeteredRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), metrics);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    private void recordPut(String name, byte[] value) {
+        CacheMetrics cacheMetrics = metrics.apply(name);
+        cacheMetrics.puts.increment();
+        cacheMetrics.bytesWritten.add(value.length);
+    }
+}
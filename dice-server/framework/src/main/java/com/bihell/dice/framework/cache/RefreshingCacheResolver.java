@@ -0,0 +1,91 @@
+package com.bihell.dice.framework.cache;
+
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.CacheOperationInvocationContext;
+import org.springframework.cache.interceptor.CacheableOperation;
+import org.springframework.cache.interceptor.SimpleCacheResolver;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 为 @Cacheable 调用绑定 {@link CacheRefresher} 的缓存解析器
+ * <p>
+ * 解析到 {@link TwoLevelCache} 时返回绑定了当前bean代理、方法和参数的缓存,软过期和热点key刷新时通过代理重新调用方法
+ *
+ * @author bihell
+ */
+public class RefreshingCacheResolver extends SimpleCacheResolver implements ApplicationContextAware {
+
+    /**
+     * 找不到代理时的占位
+     */
+    private static final Object NO_PROXY = new Object();
+
+    private ApplicationContext applicationContext;
+
+    /**
+     * bean -> bean的代理
+     */
+    private final ConcurrentMap<Object, Object> proxies = new ConcurrentHashMap<>(16);
+
+    public RefreshingCacheResolver(CacheManager cacheManager) {
+        super(cacheManager);
+    }
+
+    @Override
+    public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public Collection<? extends Cache> resolveCaches(CacheOperationInvocationContext<?> context) {
+        Collection<? extends Cache> caches = super.resolveCaches(context);
+        if (!(context.getOperation() instanceof CacheableOperation)) {
+            return caches;
+        }
+        Object proxy = proxies.get(context.getTarget());
+        if (null == proxy) {
+            // 查找时可能创建其他bean,不能在 computeIfAbsent 中执行
+            proxy = findProxy(context.getTarget(), context.getMethod());
+            proxies.putIfAbsent(context.getTarget(), proxy);
+        }
+        if (NO_PROXY == proxy) {
+            return caches;
+        }
+        List<Cache> result = new ArrayList<>(caches.size());
+        for (Cache cache : caches) {
+            result.add(cache instanceof TwoLevelCache
+                    ? ((TwoLevelCache) cache).bind(new CacheRefresher(proxy, context.getMethod(), context.getArgs()))
+                    : cache);
+        }
+        return result;
+    }
+
+    /**
+     * 在容器中查找代理了该bean的对象
+     */
+    private Object findProxy(Object target, Method method) {
+        if (null == applicationContext) {
+            return NO_PROXY;
+        }
+        for (Class<?> type : new Class<?>[]{method.getDeclaringClass(), ClassUtils.getUserClass(target)}) {
+            for (Object bean : applicationContext.getBeansOfType(type).values()) {
+                if (bean != target && AopProxyUtils.getSingletonTarget(bean) == target) {
+                    return bean;
+                }
+            }
+        }
+        return NO_PROXY;
+    }
+}
@@ -0,0 +1,142 @@
+package com.bihell.dice.framework.cache;
+
+import com.bihell.dice.config.properties.DiceHttpCacheProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 响应体缓存
+ * <p>
+ * 保存序列化后的 UTF-8 JSON 和 gzip 压缩结果,命中时直接写入输出流,不再经过 Jackson。
+ * key 包含路径、查询参数和 ETag,内容修改后 key 随之改变,旧的响应体由过期时间和容量淘汰
+ *
+ * @author bihell
+ */
+@Component
+public class ResponseBodyCache {
+
+    /**
+     * 保存响应体缓存 key 的请求属性,由 HttpCacheInterceptor 设置,ResponseBodyCacheFilter 读取
+     */
+    public static final String KEY_ATTRIBUTE = ResponseBodyCache.class.getName() + ".KEY";
+
+    private static final String GZIP = "gzip";
+
+    private final Cache<String, CachedBody> cache;
+
+    private final int compressMinBytes;
+
+    public ResponseBodyCache(DiceHttpCacheProperties properties) {
+        this.compressMinBytes = properties.getCompressMinBytes();
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getBodyCacheTtl(), TimeUnit.SECONDS)
+                .maximumWeight(properties.getBodyCacheMaxBytes())
+                .<String, CachedBody>weigher((key, body) -> key.length() * 2 + body.size())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 缓存命中时写入响应
+     *
+     * @return 是否命中
+     */
+    public boolean write(String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CachedBody body = cache.getIfPresent(key);
+        if (null == body) {
+            return false;
+        }
+        write(body, request, response);
+        return true;
+    }
+
+    /**
+     * 保存响应体并写入响应
+     *
+     * @param key         缓存key
+     * @param contentType 响应的 Content-Type
+     * @param content     未压缩的响应体
+     */
+    public void put(String key, String contentType, byte[] content, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        CachedBody body = new CachedBody(contentType, content, content.length >= compressMinBytes ? gzip(content) : null);
+        cache.put(key, body);
+        write(body, request, response);
+    }
+
+    /**
+     * 缓存统计信息
+     *
+     * @return 命中、未命中、淘汰次数以及缓存大小
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>(8);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("size", cache.estimatedSize());
+        result.put("weightedBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        return result;
+    }
+
+    private void write(CachedBody body, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        byte[] bytes = body.content;
+        response.setContentType(body.contentType);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (null != body.gzip && acceptsGzip(request)) {
+            bytes = body.gzip;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return null != acceptEncoding && acceptEncoding.toLowerCase().contains(GZIP);
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // 压缩后没有变小时不保存
+        return out.size() < content.length ? out.toByteArray() : null;
+    }
+
+    private static class CachedBody {
+
+        private final String contentType;
+
+        private final byte[] content;
+
+        private final byte[] gzip;
+
+        CachedBody(String contentType, byte[] content, byte[] gzip) {
+            this.contentType = contentType;
+            this.content = content;
+            this.gzip = gzip;
+        }
+
+        int size() {
+            return content.length + (null == gzip ? 0 : gzip.length);
+        }
+    }
+}
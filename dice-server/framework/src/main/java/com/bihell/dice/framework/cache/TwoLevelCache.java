@@ -0,0 +1,485 @@
+package com.bihell.dice.framework.cache;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存
+ * <p>
+ * 先查本地缓存(L1),未命中再查 redis 缓存(L2)并回填本地缓存。
+ * 写入和失效同时作用于两级缓存,并通知其他节点使本地缓存失效。
+ * 通过 {@link #get(Object, Callable)} 加载时(@Cacheable(sync = true)),同一个key在本节点只有一个线程加载,
+ * 其他线程等待同一个结果;配置了 {@link CacheLoadLock} 时多个节点之间也只有一个节点加载。
+ * <p>
+ * 配置了软过期时间时,超过软过期时间的值仍然返回,同时在后台重新执行 @Cacheable 方法刷新缓存;
+ * 热点key还会由 {@link TwoLevelCacheManager#refreshHotKeys()} 定时刷新。
+ * 刷新通过 {@link RefreshingCacheResolver} 绑定的 {@link CacheRefresher} 经bean代理重新调用方法,
+ * 这次调用中的 {@link #get(Object, Callable)} 直接执行加载方法并写入缓存;没有绑定时不刷新
+ *
+ * @author bihell
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+
+    private final Cache remote;
+
+    private final TwoLevelCacheManager manager;
+
+    private final CacheMetrics metrics;
+
+    /**
+     * 软过期时间(毫秒),0表示不启用
+     */
+    private final long softTtl;
+
+    /**
+     * 当前线程正在后台刷新,下一次 get 直接执行加载方法
+     */
+    private static final ThreadLocal<Boolean> REFRESHING = new ThreadLocal<>();
+
+    /**
+     * 正在加载的key
+     */
+    private final ConcurrentMap<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>(16);
+
+    /**
+     * 正在后台刷新的key
+     */
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 热点key最近一次使用的key和刷新方法,key为去掉标签版本号的key
+     */
+    private final ConcurrentMap<String, HotKey> hotKeys = new ConcurrentHashMap<>(16);
+
+    public TwoLevelCache(String name, Cache remote, boolean allowNullValues, long localTtl, long localMaxWeight,
+                         long softTtl, TwoLevelCacheManager manager) {
+        super(allowNullValues);
+        this.name = name;
+        this.remote = remote;
+        this.manager = manager;
+        this.metrics = manager.metrics(name);
+        this.softTtl = TimeUnit.SECONDS.toMillis(softTtl);
+        this.local = Caffeine.newBuilder()
+                .expireAfterWrite(localTtl, TimeUnit.SECONDS)
+                .maximumWeight(localMaxWeight)
+                .weigher(TwoLevelCache::weigh)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object stored = local.getIfPresent(key);
+        if (null != stored) {
+            metrics.localHits.increment();
+            return unwrap(stored);
+        }
+        ValueWrapper wrapper = remote.get(key);
+        if (null == wrapper) {
+            return null;
+        }
+        stored = fromRemote(wrapper);
+        local.put(key, stored);
+        return unwrap(stored);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return get(key, valueLoader, null);
+    }
+
+    /**
+     * 绑定刷新方法,由 {@link RefreshingCacheResolver} 为每次 @Cacheable 调用创建
+     *
+     * @param refresher 重新调用 @Cacheable 方法
+     * @return 通过 {@link #get(Object, Callable)} 加载时可以后台刷新的缓存
+     */
+    public Cache bind(CacheRefresher refresher) {
+        return new BoundCache(refresher);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(Object key, Callable<T> valueLoader, CacheRefresher refresher) {
+        if (Boolean.TRUE.equals(REFRESHING.get())) {
+            // 只有刷新调用的第一次缓存读取需要重新加载,方法内部的其他缓存正常读取
+            REFRESHING.remove();
+            Object stored = reload(key, valueLoader);
+            return null == stored ? null : (T) fromStoreValue(unwrap(stored));
+        }
+        String baseKey = baseKey(key);
+        if (null != refresher && manager.isHotKey(name, baseKey)) {
+            hotKeys.put(baseKey, new HotKey(key, refresher));
+        }
+        Object stored = local.getIfPresent(key);
+        if (null != stored) {
+            metrics.localHits.increment();
+        } else {
+            stored = coalescedLoad(key, valueLoader);
+            if (null == stored) {
+                return null;
+            }
+        }
+        if (null != refresher && isStale(stored)) {
+            // 先返回旧值,后台刷新
+            refresh(key, refresher);
+        }
+        return (T) fromStoreValue(unwrap(stored));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        local.put(key, store(key, value));
+        manager.publish(name, key);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Object stored = wrap(toStoreValue(value));
+        ValueWrapper existing = remote.putIfAbsent(key, stored instanceof CacheEntry ? stored : value);
+        if (null == existing) {
+            local.put(key, stored);
+            manager.publish(name, key);
+            return null;
+        }
+        return new SimpleValueWrapper(fromStoreValue(unwrap(fromRemote(existing))));
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        local.invalidate(key);
+        manager.publish(name, key);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        manager.publish(name, null);
+    }
+
+    /**
+     * 只清除本地缓存,收到其他节点的失效消息时调用
+     *
+     * @param key 缓存key,为空时清空
+     */
+    public void evictLocal(Object key) {
+        if (null == key) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    /**
+     * 在后台刷新所有热点key
+     */
+    public void refreshHotKeys() {
+        hotKeys.values().forEach(hotKey -> refresh(hotKey.key, hotKey.refresher));
+    }
+
+    /**
+     * 本地缓存的统计
+     *
+     * @return 条目数量、权重和淘汰次数
+     */
+    public Map<String, Object> localStats() {
+        CacheStats stats = local.stats();
+        Map<String, Object> result = new LinkedHashMap<>(8);
+        result.put("size", local.estimatedSize());
+        result.put("weight", local.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        result.put("evictionCount", stats.evictionCount());
+        result.put("hotKeys", hotKeys.keySet());
+        return result;
+    }
+
+    /**
+     * 同一个key只有一个线程加载,其他线程等待同一个结果。
+     * 加载抛出任何异常(包括 Error)都会结束等待,等待的线程抛出同一个异常
+     *
+     * @return 缓存的值,加载结果为空且不允许缓存空值时返回null
+     */
+    private Object coalescedLoad(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (null != existing) {
+            metrics.coalesced.increment();
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw e;
+            }
+        }
+        try {
+            Object stored = load(key, valueLoader);
+            if (null != stored) {
+                local.put(key, stored);
+            }
+            future.complete(stored);
+            return stored;
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private Object load(Object key, Callable<?> valueLoader) {
+        ValueWrapper wrapper = remote.get(key);
+        if (null != wrapper) {
+            return fromRemote(wrapper);
+        }
+        CacheLoadLock loadLock = manager.getLoadLock();
+        if (null == loadLock) {
+            return loadAndPut(key, valueLoader);
+        }
+        String token = loadLock.tryLock(name, key);
+        if (null != token) {
+            try {
+                return loadAndPut(key, valueLoader);
+            } finally {
+                loadLock.unlock(name, key, token);
+            }
+        }
+        // 其他节点正在加载,等待结果写入redis,超时后自己加载;轮询不计入命中率,第一次读取已经记录了未命中
+        metrics.lockWaits.increment();
+        wrapper = loadLock.await(name, key, () -> MeteredRedisCacheWriter.unmetered(() -> remote.get(key)));
+        if (null != wrapper) {
+            return fromRemote(wrapper);
+        }
+        return loadAndPut(key, valueLoader);
+    }
+
+    private Object loadAndPut(Object key, Callable<?> valueLoader) {
+        Object value;
+        long start = System.nanoTime();
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            metrics.recordLoad(System.nanoTime() - start, false);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        metrics.recordLoad(System.nanoTime() - start, true);
+        if (null == value && !isAllowNullValues()) {
+            return null;
+        }
+        return store(key, value);
+    }
+
+    /**
+     * 写入redis
+     *
+     * @return 本地缓存中保存的值
+     */
+    private Object store(Object key, Object value) {
+        Object stored = wrap(toStoreValue(value));
+        remote.put(key, stored instanceof CacheEntry ? stored : value);
+        return stored;
+    }
+
+    private void refresh(Object key, CacheRefresher refresher) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        boolean submitted = manager.submitRefresh(() -> {
+            try {
+                doRefresh(key, refresher);
+            } finally {
+                refreshing.remove(key);
+            }
+        });
+        if (!submitted) {
+            refreshing.remove(key);
+            metrics.refreshRejected.increment();
+        }
+    }
+
+    private void doRefresh(Object key, CacheRefresher refresher) {
+        CacheLoadLock loadLock = manager.getLoadLock();
+        String token = null == loadLock ? null : loadLock.tryLock(name, key);
+        if (null != loadLock && null == token) {
+            // 其他节点正在刷新
+            return;
+        }
+        try {
+            REFRESHING.set(Boolean.TRUE);
+            refresher.invoke();
+        } catch (Throwable t) {
+            metrics.refreshFailures.increment();
+            log.warn("刷新缓存失败, cache: {}, key: {}", name, key, t);
+        } finally {
+            REFRESHING.remove();
+            if (null != token) {
+                loadLock.unlock(name, key, token);
+            }
+        }
+    }
+
+    /**
+     * 刷新调用中执行加载方法并写入两级缓存
+     *
+     * @return 缓存的值,加载结果为空且不允许缓存空值时返回null
+     */
+    private Object reload(Object key, Callable<?> valueLoader) {
+        Object stored = loadAndPut(key, valueLoader);
+        if (null == stored) {
+            remote.evict(key);
+            local.invalidate(key);
+        } else {
+            local.put(key, stored);
+        }
+        manager.publish(name, key);
+        metrics.refreshes.increment();
+        return stored;
+    }
+
+    private Object fromRemote(ValueWrapper wrapper) {
+        Object value = wrapper.get();
+        return value instanceof CacheEntry ? value : toStoreValue(value);
+    }
+
+    private Object wrap(Object storeValue) {
+        return softTtl > 0 ? new CacheEntry(storeValue, System.currentTimeMillis()) : storeValue;
+    }
+
+    private static Object unwrap(Object stored) {
+        return stored instanceof CacheEntry ? ((CacheEntry) stored).getValue() : stored;
+    }
+
+    private boolean isStale(Object stored) {
+        return stored instanceof CacheEntry && System.currentTimeMillis() - ((CacheEntry) stored).getCreateTime() > softTtl;
+    }
+
+    /**
+     * 去掉 {@link CacheTags} 添加的版本号
+     */
+    private static String baseKey(Object key) {
+        String str = String.valueOf(key);
+        int index = str.lastIndexOf('@');
+        return index < 0 ? str : str.substring(0, index);
+    }
+
+    /**
+     * 本地缓存的权重,集合和分页结果按元素数量计算
+     */
+    private static int weigh(Object key, Object stored) {
+        Object value = unwrap(stored);
+        int size = 1;
+        if (value instanceof Collection) {
+            size = ((Collection<?>) value).size();
+        } else if (value instanceof Map) {
+            size = ((Map<?, ?>) value).size();
+        } else if (value instanceof IPage) {
+            size = ((IPage<?>) value).getRecords().size();
+        }
+        return Math.max(1, size);
+    }
+
+    private static class HotKey {
+
+        private final Object key;
+
+        private final CacheRefresher refresher;
+
+        HotKey(Object key, CacheRefresher refresher) {
+            this.key = key;
+            this.refresher = refresher;
+        }
+    }
+
+    /**
+     * 绑定了刷新方法的缓存,其他操作直接交给 {@link TwoLevelCache}
+     */
+    private class BoundCache implements Cache {
+
+        private final CacheRefresher refresher;
+
+        BoundCache(CacheRefresher refresher) {
+            this.refresher = refresher;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return TwoLevelCache.this;
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return TwoLevelCache.this.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return TwoLevelCache.this.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return TwoLevelCache.this.get(key, valueLoader, refresher);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            TwoLevelCache.this.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return TwoLevelCache.this.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            TwoLevelCache.this.evict(key);
+        }
+
+        @Override
+        public void clear() {
+            TwoLevelCache.this.clear();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.bihell.dice.framework.cache;
+
+import com.bihell.dice.config.properties.DiceCacheProperties;
+import com.bihell.dice.config.properties.DiceCacheSpecProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 两级缓存管理器
+ * <p>
+ * 在 {@link RedisCacheManager} 的缓存之前加一层本地缓存,失效时通过 redis 发布订阅通知其他节点。
+ * 需要把本对象注册为 dice.cache.topic 频道的监听器。
+ * 软过期刷新和热点key刷新在有界线程池中执行,队列满时放弃刷新
+ *
+ * @author bihell
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, DisposableBean {
+
+    private static final String REFRESH_EXECUTOR_STATS = "refresh-executor";
+
+    private final String node = UUID.randomUUID().toString();
+
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>(16);
+
+    private final ConcurrentMap<String, CacheMetrics> metrics = new ConcurrentHashMap<>(16);
+
+    private final RedisCacheManager remote;
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    private final DiceCacheProperties properties;
+
+    private final CacheLoadLock loadLock;
+
+    private final ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * 热点key,格式为 缓存名称:key
+     */
+    private final Set<String> hotKeys;
+
+    /**
+     * @param factory       redis 连接
+     * @param defaultConfig redis 缓存默认配置
+     * @param configs       按缓存名称的 redis 缓存配置
+     * @param redisTemplate 用于发送失效消息
+     * @param properties    缓存配置属性
+     */
+    public TwoLevelCacheManager(RedisConnectionFactory factory, RedisCacheConfiguration defaultConfig,
+                                Map<String, RedisCacheConfiguration> configs,
+                                RedisTemplate<Object, Object> redisTemplate, DiceCacheProperties properties) {
+        RedisCacheWriter writer = new MeteredRedisCacheWriter(RedisCacheWriter.nonLockingRedisCacheWriter(factory), this::metrics);
+        this.remote = RedisCacheManager.builder(writer)
+                .cacheDefaults(defaultConfig)
+                .withInitialCacheConfigurations(configs)
+                .build();
+        this.remote.afterPropertiesSet();
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.loadLock = properties.isLoadLockEnable()
+                ? new CacheLoadLock(redisTemplate, properties.getLoadLockTimeout(), properties.getLoadWaitTimeout(), properties.getLoadWaitInterval())
+                : null;
+        this.refreshExecutor = new ThreadPoolExecutor(properties.getRefreshThreads(), properties.getRefreshThreads(),
+                60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(properties.getRefreshQueueSize()),
+                new CustomizableThreadFactory("cache-refresh-"), new ThreadPoolExecutor.AbortPolicy());
+        this.hotKeys = new HashSet<>(properties.getHotKeys());
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    /**
+     * 获取缓存的统计对象
+     *
+     * @param name 缓存名称
+     * @return CacheMetrics
+     */
+    public CacheMetrics metrics(String name) {
+        return metrics.computeIfAbsent(name, k -> new CacheMetrics());
+    }
+
+    /**
+     * 定时刷新热点key
+     */
+    @Scheduled(fixedDelayString = "${dice.cache.refresh-interval:60000}", initialDelayString = "${dice.cache.refresh-interval:60000}")
+    public void refreshHotKeys() {
+        caches.values().forEach(cache -> {
+            if (cache instanceof TwoLevelCache) {
+                ((TwoLevelCache) cache).refreshHotKeys();
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 所有缓存的统计信息
+     *
+     * @return 缓存名称 -> 统计信息,refresh-executor 为后台刷新线程池的状态
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        metrics.forEach((name, cacheMetrics) -> {
+            Map<String, Object> stats = cacheMetrics.toMap();
+            Cache cache = caches.get(name);
+            if (cache instanceof TwoLevelCache) {
+                stats.put("local", ((TwoLevelCache) cache).localStats());
+            }
+            result.put(name, stats);
+        });
+        Map<String, Object> executor = new LinkedHashMap<>(8);
+        executor.put("activeCount", refreshExecutor.getActiveCount());
+        executor.put("queueSize", refreshExecutor.getQueue().size());
+        executor.put("completedTaskCount", refreshExecutor.getCompletedTaskCount());
+        result.put(REFRESH_EXECUTOR_STATS, executor);
+        return result;
+    }
+
+    /**
+     * 处理其他节点发出的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (!(body instanceof CacheInvalidationMessage)) {
+            return;
+        }
+        CacheInvalidationMessage invalidation = (CacheInvalidationMessage) body;
+        if (node.equals(invalidation.getNode())) {
+            return;
+        }
+        Cache cache = caches.get(invalidation.getCacheName());
+        if (cache instanceof TwoLevelCache) {
+            ((TwoLevelCache) cache).evictLocal(invalidation.getKey());
+        }
+    }
+
+    private Cache createCache(String name) {
+        Cache remoteCache = remote.getCache(name);
+        if (!properties.isLocalEnable() || null == remoteCache) {
+            return remoteCache;
+        }
+        DiceCacheSpecProperties spec = properties.getCaches().getOrDefault(name, new DiceCacheSpecProperties());
+        long localTtl = null != spec.getLocalTtl() ? spec.getLocalTtl() : properties.getLocalTtl();
+        long localMaxWeight = null != spec.getLocalMaxWeight() ? spec.getLocalMaxWeight() : properties.getLocalMaxWeight();
+        long softTtl = null != spec.getSoftTtl() ? spec.getSoftTtl() : 0L;
+        boolean allowNullValues = ((AbstractValueAdaptingCache) remoteCache).isAllowNullValues();
+        return new TwoLevelCache(name, remoteCache, allowNullValues, localTtl, localMaxWeight, softTtl, this);
+    }
+
+    /**
+     * 跨节点的加载锁,未启用时为空
+     */
+    CacheLoadLock getLoadLock() {
+        return loadLock;
+    }
+
+    boolean isHotKey(String cacheName, String key) {
+        return hotKeys.contains(cacheName + ":" + key);
+    }
+
+    /**
+     * 提交后台刷新任务
+     *
+     * @return 队列已满时返回false
+     */
+    boolean submitRefresh(Runnable task) {
+        try {
+            refreshExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 通知其他节点使本地缓存失效
+     *
+     * @param cacheName 缓存名称
+     * @param key       缓存key,为空时清空
+     */
+    void publish(String cacheName, Object key) {
+        try {
+            redisTemplate.convertAndSend(properties.getTopic(), new CacheInvalidationMessage(node, cacheName, key));
+        } catch (Exception e) {
+            // 通知失败时其他节点的本地缓存在过期后失效
+            log.warn("发送缓存失效消息失败, cache: {}, key: {}", cacheName, key, e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.bihell.dice.framework.cache.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 前台读接口的 HTTP 缓存注解
+ * 标注在controller方法上,匿名 GET 请求根据缓存标签的版本号生成 ETag,未修改时返回304,
+ * 并缓存序列化、压缩后的响应体
+ *
+ * @author bihell
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface HttpCache {
+
+    /**
+     * 接口名称,用于 ETag 和按接口配置 Cache-Control
+     */
+    String value();
+
+    /**
+     * 响应内容依赖的缓存标签,{name} 替换为同名的路径变量或请求参数
+     */
+    String[] tags();
+
+    /**
+     * 是否缓存响应体
+     */
+    boolean body() default true;
+}
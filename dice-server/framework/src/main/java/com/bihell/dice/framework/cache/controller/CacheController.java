@@ -0,0 +1,58 @@
+package com.bihell.dice.framework.cache.controller;
+
+import com.bihell.dice.framework.cache.MarkdownRenderCache;
+import com.bihell.dice.framework.cache.ResponseBodyCache;
+import com.bihell.dice.framework.cache.TwoLevelCacheManager;
+import com.bihell.dice.framework.common.api.ApiResult;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 缓存统计 控制器
+ *
+ * @author bihell
+ */
+@RestController
+@RequestMapping("/v1/api/admin/cache")
+@Api(value = "缓存统计API", tags = {"缓存统计"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class CacheController {
+
+    private final TwoLevelCacheManager cacheManager;
+
+    private final ResponseBodyCache responseBodyCache;
+
+    /**
+     * markdown 渲染缓存统计
+     */
+    @GetMapping("/markdown")
+    @ApiOperation(value = "markdown渲染缓存统计")
+    public ApiResult<Map<String, Object>> markdownStats() {
+        return ApiResult.ok(MarkdownRenderCache.stats());
+    }
+
+    /**
+     * 各个缓存的统计
+     */
+    @GetMapping("/stats")
+    @ApiOperation(value = "缓存统计")
+    public ApiResult<Map<String, Map<String, Object>>> stats() {
+        return ApiResult.ok(cacheManager.stats());
+    }
+
+    /**
+     * 响应体缓存统计
+     */
+    @GetMapping("/response")
+    @ApiOperation(value = "响应体缓存统计")
+    public ApiResult<Map<String, Object>> responseStats() {
+        return ApiResult.ok(responseBodyCache.stats());
+    }
+}
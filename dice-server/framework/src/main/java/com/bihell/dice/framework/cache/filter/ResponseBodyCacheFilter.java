@@ -0,0 +1,49 @@
+package com.bihell.dice.framework.cache.filter;
+
+import com.bihell.dice.framework.cache.ResponseBodyCache;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 响应体缓存 Filter
+ * <p>
+ * HttpCacheInterceptor 未命中响应体缓存时会设置 {@link ResponseBodyCache#KEY_ATTRIBUTE},
+ * 此时把 controller 输出的 JSON 保存到缓存,并按 Accept-Encoding 写入压缩后的响应
+ *
+ * @author bihell
+ */
+public class ResponseBodyCacheFilter implements Filter {
+
+    private final ResponseBodyCache responseBodyCache;
+
+    public ResponseBodyCacheFilter(ResponseBodyCache responseBodyCache) {
+        this.responseBodyCache = responseBodyCache;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        String key = (String) request.getAttribute(ResponseBodyCache.KEY_ATTRIBUTE);
+        String contentType = wrapper.getContentType();
+        if (null != key && HttpServletResponse.SC_OK == wrapper.getStatus() && !response.isCommitted()
+                && null != contentType && MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            responseBodyCache.put(key, contentType, wrapper.getContentAsByteArray(), request, response);
+        } else {
+            wrapper.copyBodyToResponse();
+        }
+    }
+}
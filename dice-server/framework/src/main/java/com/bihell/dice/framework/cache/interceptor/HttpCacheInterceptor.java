@@ -0,0 +1,105 @@
+package com.bihell.dice.framework.cache.interceptor;
+
+import com.bihell.dice.config.properties.DiceHttpCacheProperties;
+import com.bihell.dice.framework.cache.CacheTags;
+import com.bihell.dice.framework.cache.ResponseBodyCache;
+import com.bihell.dice.framework.cache.annotation.HttpCache;
+import com.bihell.dice.framework.shiro.util.JwtTokenUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 前台读接口的 HTTP 缓存拦截器
+ * <p>
+ * 处理标注了 {@link HttpCache} 的匿名 GET 请求:用缓存标签的版本号生成 ETag,
+ * If-None-Match / If-Modified-Since 匹配时返回304;响应体缓存命中时直接写入响应。
+ * 两种情况都不会执行controller,也不查询数据库和缓存
+ *
+ * @author bihell
+ */
+public class HttpCacheInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * 预览草稿时使用的参数,带此参数的请求不缓存
+     */
+    private static final String TOKEN_PARAM = "token";
+
+    @Autowired
+    private CacheTags cacheTags;
+
+    @Autowired
+    private ResponseBodyCache responseBodyCache;
+
+    @Autowired
+    private DiceHttpCacheProperties properties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!properties.isEnable() || !(handler instanceof HandlerMethod) || !HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        HttpCache httpCache = ((HandlerMethod) handler).getMethodAnnotation(HttpCache.class);
+        if (null == httpCache || !isAnonymous(request)) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                properties.getEndpoints().getOrDefault(httpCache.value(), properties.getCacheControl()));
+        CacheTags.Snapshot snapshot = cacheTags.snapshot(resolveTags(httpCache.tags(), request));
+        String etag = "\"" + httpCache.value() + "-" + snapshot.getVersion() + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, snapshot.getLastModified() > 0 ? snapshot.getLastModified() : -1)) {
+            return false;
+        }
+
+        if (!httpCache.body() || !properties.isBodyCacheEnable()) {
+            return true;
+        }
+        String query = request.getQueryString();
+        String key = request.getRequestURI() + (null == query ? "" : "?" + query) + "#" + etag;
+        if (responseBodyCache.write(key, request, response)) {
+            return false;
+        }
+        request.setAttribute(ResponseBodyCache.KEY_ATTRIBUTE, key);
+        return true;
+    }
+
+    private boolean isAnonymous(HttpServletRequest request) {
+        return StringUtils.isEmpty(request.getHeader(JwtTokenUtil.getTokenName()))
+                && StringUtils.isEmpty(request.getParameter(TOKEN_PARAM));
+    }
+
+    /**
+     * 把标签中的 {name} 替换为路径变量或请求参数
+     */
+    @SuppressWarnings("unchecked")
+    private String[] resolveTags(String[] tags, HttpServletRequest request) {
+        Map<String, String> uriVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (null == uriVariables) {
+            uriVariables = Collections.emptyMap();
+        }
+        String[] resolved = new String[tags.length];
+        for (int i = 0; i < tags.length; i++) {
+            String tag = tags[i];
+            int start = tag.indexOf('{');
+            int end = tag.indexOf('}', start);
+            if (start >= 0 && end > start) {
+                String name = tag.substring(start + 1, end);
+                String value = uriVariables.getOrDefault(name, request.getParameter(name));
+                tag = tag.substring(0, start) + StringUtils.defaultString(value) + tag.substring(end + 1);
+            }
+            resolved[i] = tag;
+        }
+        return resolved;
+    }
+}
@@ -23,6 +23,10 @@ public enum ApiCode {
      * 你请求的资源不存在
      **/
     NOT_FOUND(404, "你请求的资源不存在"),
+    /**
+     * 请求太频繁
+     **/
+    TOO_MANY_REQUESTS(429, "请求太频繁,请稍后再试"),
     /**
      * 操作失败
      **/
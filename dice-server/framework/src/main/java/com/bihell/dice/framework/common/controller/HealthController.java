@@ -0,0 +1,42 @@
+package com.bihell.dice.framework.common.controller;
+
+import com.bihell.dice.framework.common.api.ApiCode;
+import com.bihell.dice.framework.common.api.ApiResult;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 健康检查 控制器
+ *
+ * @author bihell
+ */
+@RestController
+@RequestMapping("/health")
+@Api(value = "健康检查API", tags = {"健康检查"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class HealthController {
+
+    private final ApplicationAvailability applicationAvailability;
+
+    /**
+     * 是否可以接收流量,启动预热完成前返回503
+     */
+    @GetMapping("/readiness")
+    @ApiOperation(value = "就绪检查")
+    public ResponseEntity<ApiResult<ReadinessState>> readiness() {
+        ReadinessState state = applicationAvailability.getReadinessState();
+        if (ReadinessState.ACCEPTING_TRAFFIC == state) {
+            return ResponseEntity.ok(ApiResult.ok(state));
+        }
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(ApiResult.fail(ApiCode.FAIL, state));
+    }
+}
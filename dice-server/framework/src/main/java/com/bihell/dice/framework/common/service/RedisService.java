@@ -8,7 +8,9 @@ import org.springframework.data.redis.core.*;
 import org.springframework.stereotype.Service;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -81,6 +83,28 @@ public class RedisService {
         return result;
     }
 
+    /**
+     * multi get
+     *
+     * @param keys
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> multiGet(final Collection<String> keys) {
+        return redisTemplate.opsForValue().multiGet(keys);
+    }
+
+    /**
+     * increment
+     *
+     * @param key
+     * @return
+     */
+    public Long increment(final String key) {
+        ValueOperations<Serializable, Object> operations = redisTemplate.opsForValue();
+        return operations.increment(key);
+    }
+
     /**
      * remove single key
      *
@@ -138,6 +162,133 @@ public class RedisService {
         return hash.get(key, hashKey);
     }
 
+    /**
+     * hash put all
+     *
+     * @param key
+     * @param map
+     */
+    public void hashPutAll(String key, Map<?, ?> map) {
+        HashOperations<String, Object, Object> hash = redisTemplate.opsForHash();
+        hash.putAll(key, map);
+    }
+
+    /**
+     * hash delete
+     *
+     * @param key
+     * @param hashKeys
+     * @return
+     */
+    public Long hashDelete(String key, Object... hashKeys) {
+        HashOperations<String, Object, Object> hash = redisTemplate.opsForHash();
+        return hash.delete(key, hashKeys);
+    }
+
+    /**
+     * hash values
+     *
+     * @param key
+     * @return
+     */
+    public List<Object> hashValues(String key) {
+        HashOperations<String, Object, Object> hash = redisTemplate.opsForHash();
+        return hash.values(key);
+    }
+
+    /**
+     * set value if absent with expireTime
+     *
+     * @param key
+     * @param value
+     * @param expireTime
+     * @param timeUnit
+     * @return
+     */
+    public boolean setIfAbsent(final String key, Object value, Long expireTime, TimeUnit timeUnit) {
+        ValueOperations<Serializable, Object> operations = redisTemplate.opsForValue();
+        return Boolean.TRUE.equals(operations.setIfAbsent(key, value, expireTime, timeUnit));
+    }
+
+    /**
+     * set value if absent, without expire time
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public boolean setIfAbsent(final String key, Object value) {
+        ValueOperations<Serializable, Object> operations = redisTemplate.opsForValue();
+        return Boolean.TRUE.equals(operations.setIfAbsent(key, value));
+    }
+
+    /**
+     * rename if new key absent
+     *
+     * @param oldKey
+     * @param newKey
+     * @return
+     */
+    public boolean renameIfAbsent(final String oldKey, final String newKey) {
+        return Boolean.TRUE.equals(redisTemplate.renameIfAbsent(oldKey, newKey));
+    }
+
+    /**
+     * rename, overwrite new key
+     *
+     * @param oldKey
+     * @param newKey
+     */
+    public void rename(final String oldKey, final String newKey) {
+        redisTemplate.rename(oldKey, newKey);
+    }
+
+    /**
+     * hash increment
+     *
+     * @param key
+     * @param hashKey
+     * @param delta
+     * @return
+     */
+    public Long hashIncrement(String key, Object hashKey, long delta) {
+        HashOperations<String, Object, Object> hash = redisTemplate.opsForHash();
+        return hash.increment(key, hashKey, delta);
+    }
+
+    /**
+     * 在一个 MULTI/EXEC 事务中增加多个 hash 字段,要么全部执行要么都不执行
+     *
+     * @param key    hash key
+     * @param deltas 字段 -> 增加的值
+     */
+    @SuppressWarnings("unchecked")
+    public void hashIncrementAll(String key, Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        redisTemplate.execute(new SessionCallback<List<Object>>() {
+            @Override
+            public List<Object> execute(RedisOperations operations) {
+                operations.multi();
+                HashOperations<String, Object, Object> hash = operations.opsForHash();
+                deltas.forEach((field, delta) -> hash.increment(key, field, delta));
+                return operations.exec();
+            }
+        });
+    }
+
+    /**
+     * hash entries
+     *
+     * @param key
+     * @return
+     */
+    public Map<Object, Object> hashEntries(String key) {
+        HashOperations<String, Object, Object> hash = redisTemplate.opsForHash();
+        return hash.entries(key);
+    }
+
     /**
      * list push
      *
@@ -29,6 +29,9 @@ public abstract class BasePageParam implements Serializable {
     @ApiModelProperty(value = "搜索字符串", example = "")
     private String keyword;
 
+    @ApiModelProperty(value = "游标,不为null时使用游标分页,第一页传空字符串", example = "")
+    private String cursor;
+
     public void setPageIndex(Long pageIndex) {
         if (pageIndex == null || pageIndex <= 0) {
             this.pageIndex = CommonConstant.DEFAULT_PAGE_INDEX;
@@ -0,0 +1,52 @@
+package com.bihell.dice.framework.core.pagination;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果对象
+ * <p>
+ * 不统计总行数(total固定为0),通过hasMore和nextCursor获取下一页
+ *
+ * @author bihell
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ApiModel("游标分页结果对象")
+public class CursorPaging<T> extends Paging<T> {
+    private static final long serialVersionUID = -6157325236184725410L;
+
+    @ApiModelProperty("下一页游标")
+    private String nextCursor;
+
+    @ApiModelProperty("是否还有下一页")
+    private boolean hasMore;
+
+    public CursorPaging() {
+
+    }
+
+    /**
+     * 查询时多取一条(pageSize + 1)用于判断是否还有下一页
+     *
+     * @param records  查询结果
+     * @param pageSize 页大小
+     * @param cursorOf 根据最后一条记录生成游标
+     */
+    public CursorPaging(List<T> records, long pageSize, Function<T, String> cursorOf) {
+        this.hasMore = records.size() > pageSize;
+        List<T> pageRecords = hasMore ? new ArrayList<>(records.subList(0, (int) pageSize)) : records;
+        this.setRecords(pageRecords);
+        this.setPageSize(pageSize);
+        if (hasMore) {
+            this.nextCursor = cursorOf.apply(pageRecords.get(pageRecords.size() - 1));
+        }
+    }
+
+}
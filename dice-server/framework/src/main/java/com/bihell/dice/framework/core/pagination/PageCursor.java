@@ -0,0 +1,88 @@
+package com.bihell.dice.framework.core.pagination;
+
+import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.framework.common.exception.TipException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 游标分页的游标编码工具
+ * <p>
+ * 游标由排序字段和id按顺序组成,编码为url安全的base64字符串,前端只需原样传回
+ *
+ * @author bihell
+ */
+public class PageCursor {
+
+    private static final String SEPARATOR = ",";
+
+    private PageCursor() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param keys 排序字段的值,最后一个为id
+     * @return 游标字符串
+     */
+    public static String encode(Object... keys) {
+        String raw = StringUtils.join(keys, SEPARATOR);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor 游标字符串
+     * @param size   游标包含的字段数量
+     * @return 排序字段的值, 游标为空(第一页)时返回null
+     */
+    public static String[] decode(String cursor, int size) {
+        if (StringUtils.isBlank(cursor)) {
+            return null;
+        }
+        String[] keys;
+        try {
+            keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new TipException("游标参数不合法");
+        }
+        if (keys.length != size) {
+            throw new TipException("游标参数不合法");
+        }
+        return keys;
+    }
+
+    /**
+     * 限制请求中的每页数量
+     *
+     * @param limit 每页数量
+     * @return 1 到 {@link DiceConsts#MAX_PAGE_SIZE} 之间的数量, 为空时返回默认分页大小
+     */
+    public static int limit(Number limit) {
+        if (null == limit) {
+            return Integer.parseInt(DiceConsts.PAGE_SIZE);
+        }
+        return (int) Math.max(1, Math.min(limit.longValue(), DiceConsts.MAX_PAGE_SIZE));
+    }
+
+    /**
+     * 解码只包含id的游标
+     *
+     * @param cursor 游标字符串
+     * @return id, 游标为空(第一页)时返回null
+     */
+    public static Long decodeId(String cursor) {
+        String[] keys = decode(cursor, 1);
+        if (null == keys) {
+            return null;
+        }
+        try {
+            return Long.valueOf(keys[0]);
+        } catch (NumberFormatException e) {
+            throw new TipException("游标参数不合法");
+        }
+    }
+}
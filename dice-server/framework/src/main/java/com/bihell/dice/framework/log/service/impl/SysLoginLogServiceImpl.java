@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.bihell.dice.framework.common.service.impl.BaseServiceImpl;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
+import com.bihell.dice.framework.core.pagination.PageCursor;
 import com.bihell.dice.framework.core.pagination.PageInfo;
 import com.bihell.dice.framework.core.pagination.Paging;
 import com.bihell.dice.framework.log.entity.SysLoginLog;
@@ -16,6 +18,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * 系统登录日志 服务实现类 todo
  */
@@ -46,6 +50,16 @@ public class SysLoginLogServiceImpl extends BaseServiceImpl<SysLoginLogMapper, S
 
     @Override
     public Paging<SysLoginLog> getSysLoginLogPageList(SysLoginLogPageParam sysLoginLogPageParam) throws Exception {
+        if (null != sysLoginLogPageParam.getCursor()) {
+            // 游标分页,按自增id倒序,不统计总数
+            Long lastId = PageCursor.decodeId(sysLoginLogPageParam.getCursor());
+            long pageSize = PageCursor.limit(sysLoginLogPageParam.getPageSize());
+            List<SysLoginLog> list = sysLoginLogMapper.selectList(new LambdaQueryWrapper<SysLoginLog>()
+                    .lt(null != lastId, SysLoginLog::getId, lastId)
+                    .orderByDesc(SysLoginLog::getId)
+                    .last("LIMIT " + (pageSize + 1)));
+            return new CursorPaging<>(list, pageSize, item -> PageCursor.encode(item.getId()));
+        }
         Page<SysLoginLog> page = new PageInfo<>(sysLoginLogPageParam,OrderItem.desc("create_time"));
         LambdaQueryWrapper<SysLoginLog> wrapper = new LambdaQueryWrapper<>();
         IPage<SysLoginLog> iPage = sysLoginLogMapper.selectPage(page, wrapper);
@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.bihell.dice.framework.common.service.impl.BaseServiceImpl;
+import com.bihell.dice.framework.core.pagination.CursorPaging;
+import com.bihell.dice.framework.core.pagination.PageCursor;
 import com.bihell.dice.framework.core.pagination.PageInfo;
 import com.bihell.dice.framework.core.pagination.Paging;
 import com.bihell.dice.framework.log.entity.SysOperationLog;
@@ -16,6 +18,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 /**
  * 系统操作日志 服务实现类 todo
  */
@@ -46,6 +50,16 @@ public class SysOperationLogServiceImpl extends BaseServiceImpl<SysOperationLogM
 
     @Override
     public Paging<SysOperationLog> getSysOperationLogPageList(SysOperationLogPageParam sysOperationLogPageParam) throws Exception {
+        if (null != sysOperationLogPageParam.getCursor()) {
+            // 游标分页,按自增id倒序,不统计总数
+            Long lastId = PageCursor.decodeId(sysOperationLogPageParam.getCursor());
+            long pageSize = PageCursor.limit(sysOperationLogPageParam.getPageSize());
+            List<SysOperationLog> list = sysOperationLogMapper.selectList(new LambdaQueryWrapper<SysOperationLog>()
+                    .lt(null != lastId, SysOperationLog::getId, lastId)
+                    .orderByDesc(SysOperationLog::getId)
+                    .last("LIMIT " + (pageSize + 1)));
+            return new CursorPaging<>(list, pageSize, item -> PageCursor.encode(item.getId()));
+        }
         Page<SysOperationLog> page = new PageInfo<>(sysOperationLogPageParam,OrderItem.desc("create_time"));
         LambdaQueryWrapper<SysOperationLog> wrapper = new LambdaQueryWrapper<>();
         IPage<SysOperationLog> iPage = sysOperationLogMapper.selectPage(page, wrapper);
@@ -0,0 +1,116 @@
+package com.bihell.dice.framework.ratelimit;
+
+import com.bihell.dice.config.properties.DiceRateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 限流器
+ * <p>
+ * 本地令牌桶保存在有容量上限、按访问时间过期的缓存中。
+ * 启用 redis 模式时用 lua 脚本在 redis 中执行同样的算法,redis 不可用时使用本地令牌桶
+ *
+ * @author bihell
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    private static final String BUCKET_KEY = "rate-limit:%s:%s";
+
+    /**
+     * 时间单位为微秒,返回1表示获取成功
+     */
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[1]) " +
+                    "local arrival = math.max(tonumber(redis.call('get', KEYS[1]) or 0), now) + tonumber(ARGV[2]) " +
+                    "if arrival - now > tonumber(ARGV[3]) then return 0 end " +
+                    "redis.call('set', KEYS[1], string.format('%.0f', arrival), 'PX', math.ceil((arrival - now) / 1000) + 1) " +
+                    "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final DiceRateLimitProperties properties;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    private final Map<String, LongAdder> allowed = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> rejected = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimiter(StringRedisTemplate redisTemplate, DiceRateLimitProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxKeys())
+                .expireAfterAccess(properties.getExpire(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 尝试获取一个令牌,并记录通过和拒绝的次数
+     *
+     * @param name     限流名称
+     * @param key      令牌桶的 key
+     * @param capacity 令牌桶容量
+     * @param rate     每秒补充的令牌数
+     * @return 是否通过
+     */
+    public boolean tryAcquire(String name, String key, int capacity, double rate) {
+        boolean acquired = acquire(name, key, capacity, rate);
+        (acquired ? allowed : rejected).computeIfAbsent(name, k -> new LongAdder()).increment();
+        return acquired;
+    }
+
+    /**
+     * 各个限流的通过和拒绝次数
+     *
+     * @return 限流名称 -> 统计
+     */
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        allowed.forEach((name, count) -> result.computeIfAbsent(name, k -> new LinkedHashMap<>(4)).put("allowed", count.sum()));
+        rejected.forEach((name, count) -> result.computeIfAbsent(name, k -> new LinkedHashMap<>(4)).put("rejected", count.sum()));
+        Map<String, Object> local = new LinkedHashMap<>(4);
+        local.put("buckets", buckets.estimatedSize());
+        local.put("maxKeys", properties.getMaxKeys());
+        local.put("redisEnable", properties.isRedisEnable());
+        result.put("local", local);
+        return result;
+    }
+
+    private boolean acquire(String name, String key, int capacity, double rate) {
+        if (capacity <= 0 || rate <= 0) {
+            return false;
+        }
+        String bucketKey = String.format(BUCKET_KEY, name, key);
+        if (properties.isRedisEnable()) {
+            long interval = (long) Math.ceil(TimeUnit.SECONDS.toMicros(1) / rate);
+            try {
+                Long result = redisTemplate.execute(ACQUIRE_SCRIPT, Collections.singletonList(bucketKey),
+                        String.valueOf(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())),
+                        String.valueOf(interval), String.valueOf(interval * capacity));
+                return null == result || 1L == result;
+            } catch (Exception e) {
+                log.warn("redis限流失败,使用本地令牌桶: {}", e.getMessage());
+            }
+        }
+        long interval = (long) Math.ceil(TimeUnit.SECONDS.toNanos(1) / rate);
+        return buckets.get(bucketKey, k -> new TokenBucket()).tryAcquire(interval, interval * capacity, System.nanoTime());
+    }
+}
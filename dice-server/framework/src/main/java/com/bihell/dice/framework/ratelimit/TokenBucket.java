@@ -0,0 +1,36 @@
+package com.bihell.dice.framework.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * <p>
+ * 使用 GCRA 算法,只保存下一个请求的理论到达时间,一次 CAS 完成补充和扣减令牌
+ *
+ * @author bihell
+ */
+public class TokenBucket {
+
+    private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param interval 每个令牌的间隔(纳秒)
+     * @param burst    容量对应的时间(纳秒),即 capacity * interval
+     * @param now      当前时间(纳秒)
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(long interval, long burst, long now) {
+        for (; ; ) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > burst) {
+                return false;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
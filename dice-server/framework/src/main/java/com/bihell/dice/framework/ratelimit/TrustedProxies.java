@@ -0,0 +1,131 @@
+package com.bihell.dice.framework.ratelimit;
+
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 受信任的反向代理
+ * <p>
+ * 只有直连地址是受信任的代理时才读取 X-Forwarded-For,从右往左跳过受信任的代理,
+ * 取最右边一个不受信任的地址作为客户端地址。客户端自己填写的地址都在它左边,无法伪造
+ *
+ * @author bihell
+ */
+public class TrustedProxies {
+
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    /**
+     * 只解析IP字面量,避免配置或请求头中的主机名触发DNS查询
+     */
+    private static final Pattern IP_PATTERN = Pattern.compile("[0-9a-fA-F.:]+");
+
+    /**
+     * 网段地址和前缀长度
+     */
+    private final List<byte[]> networks = new ArrayList<>();
+
+    private final List<Integer> prefixes = new ArrayList<>();
+
+    /**
+     * @param proxies IP或CIDR,如 127.0.0.1、10.0.0.0/8、::1
+     */
+    public TrustedProxies(List<String> proxies) {
+        for (String proxy : null == proxies ? Collections.<String>emptyList() : proxies) {
+            String[] parts = proxy.trim().split("/", 2);
+            byte[] network = parse(parts[0]);
+            if (null == network) {
+                throw new IllegalArgumentException("受信任的代理格式错误: " + proxy);
+            }
+            int prefix = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : network.length * 8;
+            if (prefix < 0 || prefix > network.length * 8) {
+                throw new IllegalArgumentException("受信任的代理前缀长度错误: " + proxy);
+            }
+            networks.add(network);
+            prefixes.add(prefix);
+        }
+    }
+
+    /**
+     * 获取客户端地址
+     *
+     * @param request 请求
+     * @return 直连地址不受信任时返回直连地址,否则返回 X-Forwarded-For 中最右边不受信任的地址
+     */
+    public String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (networks.isEmpty() || !isTrusted(remoteAddr)) {
+            return remoteAddr;
+        }
+        List<String> hops = new ArrayList<>();
+        Enumeration<String> headers = request.getHeaders(X_FORWARDED_FOR);
+        while (null != headers && headers.hasMoreElements()) {
+            for (String hop : headers.nextElement().split(",")) {
+                if (StringUtils.isNotBlank(hop)) {
+                    hops.add(hop.trim());
+                }
+            }
+        }
+        String client = remoteAddr;
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            if (!isTrusted(client)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    /**
+     * 地址是否属于受信任的代理
+     */
+    public boolean isTrusted(String ip) {
+        byte[] address = parse(ip);
+        if (null == address) {
+            return false;
+        }
+        for (int i = 0; i < networks.size(); i++) {
+            if (matches(networks.get(i), prefixes.get(i), address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(byte[] network, int prefix, byte[] address) {
+        if (network.length != address.length) {
+            return false;
+        }
+        int bytes = prefix / 8;
+        for (int i = 0; i < bytes; i++) {
+            if (network[i] != address[i]) {
+                return false;
+            }
+        }
+        int bits = prefix % 8;
+        if (bits == 0) {
+            return true;
+        }
+        int mask = 0xff << (8 - bits);
+        return (network[bytes] & mask) == (address[bytes] & mask);
+    }
+
+    private static byte[] parse(String ip) {
+        if (null == ip || !IP_PATTERN.matcher(ip).matches()) {
+            return null;
+        }
+        try {
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+}
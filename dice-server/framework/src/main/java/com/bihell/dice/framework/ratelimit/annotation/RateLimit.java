@@ -0,0 +1,59 @@
+package com.bihell.dice.framework.ratelimit.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 接口限流
+ * <p>
+ * 每个 key 一个令牌桶,桶满时允许 capacity 个突发请求,之后每秒补充 rate 个。
+ * capacity 和 rate 可以在 dice.rate-limit.limits.{value} 中覆盖
+ *
+ * @author bihell
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * 限流名称
+     */
+    String value();
+
+    /**
+     * 令牌桶的 key
+     */
+    KeyType key() default KeyType.IP;
+
+    /**
+     * 令牌桶容量
+     */
+    int capacity() default 10;
+
+    /**
+     * 每秒补充的令牌数
+     */
+    double rate() default 1;
+
+    enum KeyType {
+
+        /**
+         * 按请求IP
+         */
+        IP,
+
+        /**
+         * 按登录用户,未登录时按IP
+         */
+        USER,
+
+        /**
+         * 整个接口共用
+         */
+        PATH
+    }
+}
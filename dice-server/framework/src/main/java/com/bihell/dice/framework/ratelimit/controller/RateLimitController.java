@@ -0,0 +1,36 @@
+package com.bihell.dice.framework.ratelimit.controller;
+
+import com.bihell.dice.framework.common.api.ApiResult;
+import com.bihell.dice.framework.ratelimit.RateLimiter;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * 限流统计 控制器
+ *
+ * @author bihell
+ */
+@RestController
+@RequestMapping("/v1/api/admin/rate-limit")
+@Api(value = "限流统计API", tags = {"限流统计"})
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class RateLimitController {
+
+    private final RateLimiter rateLimiter;
+
+    /**
+     * 各个限流的通过和拒绝次数
+     */
+    @GetMapping("/stats")
+    @ApiOperation(value = "限流统计")
+    public ApiResult<Map<String, Map<String, Object>>> stats() {
+        return ApiResult.ok(rateLimiter.stats());
+    }
+}
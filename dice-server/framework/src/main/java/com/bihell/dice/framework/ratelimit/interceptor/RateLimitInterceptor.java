@@ -0,0 +1,86 @@
+package com.bihell.dice.framework.ratelimit.interceptor;
+
+import com.bihell.dice.config.properties.DiceRateLimitProperties;
+import com.bihell.dice.config.properties.DiceRateLimitSpecProperties;
+import com.bihell.dice.framework.common.api.ApiCode;
+import com.bihell.dice.framework.common.api.ApiResult;
+import com.bihell.dice.framework.ratelimit.RateLimiter;
+import com.bihell.dice.framework.ratelimit.TrustedProxies;
+import com.bihell.dice.framework.ratelimit.annotation.RateLimit;
+import com.bihell.dice.framework.util.HttpServletResponseUtil;
+import com.bihell.dice.framework.util.LoginUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.shiro.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 限流拦截器
+ * <p>
+ * 处理带有 {@link RateLimit} 注解的接口,超过限制时返回429。
+ * 按IP限流时使用直连地址,只有直连地址是配置的受信任代理时才使用 X-Forwarded-For 中的地址
+ *
+ * @author bihell
+ */
+@Slf4j
+public class RateLimitInterceptor extends HandlerInterceptorAdapter {
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private DiceRateLimitProperties properties;
+
+    private TrustedProxies trustedProxies;
+
+    @PostConstruct
+    public void init() {
+        trustedProxies = new TrustedProxies(properties.getTrustedProxies());
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        RateLimit rateLimit = ((HandlerMethod) handler).getMethodAnnotation(RateLimit.class);
+        if (null == rateLimit) {
+            return true;
+        }
+        DiceRateLimitSpecProperties spec = properties.getLimits().get(rateLimit.value());
+        if (null != spec && Boolean.FALSE.equals(spec.getEnable())) {
+            return true;
+        }
+        int capacity = null != spec && null != spec.getCapacity() ? spec.getCapacity() : rateLimit.capacity();
+        double rate = null != spec && null != spec.getRate() ? spec.getRate() : rateLimit.rate();
+        String key = resolveKey(rateLimit.key(), request);
+        if (rateLimiter.tryAcquire(rateLimit.value(), key, capacity, rate)) {
+            return true;
+        }
+        log.warn("请求被限流, 限流: {}, key: {}", rateLimit.value(), key);
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        HttpServletResponseUtil.printJson(response, ApiResult.fail(ApiCode.TOO_MANY_REQUESTS));
+        return false;
+    }
+
+    private String resolveKey(RateLimit.KeyType keyType, HttpServletRequest request) {
+        if (RateLimit.KeyType.PATH == keyType) {
+            return request.getRequestURI();
+        }
+        // 只信任已通过认证的用户,匿名接口上的 token 可以伪造
+        if (RateLimit.KeyType.USER == keyType && SecurityUtils.getSubject().isAuthenticated()) {
+            String username = LoginUtil.getUsername();
+            if (StringUtils.isNotBlank(username)) {
+                return "user:" + username;
+            }
+        }
+        return trustedProxies.clientIp(request);
+    }
+}
@@ -0,0 +1,245 @@
+package com.bihell.dice.framework.snapshot;
+
+import com.bihell.dice.config.properties.DiceSnapshotProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 前台接口静态快照文件
+ * <p>
+ * 每个接口响应保存为 name.json 和预压缩的 name.json.gz,先写临时文件再原子替换,
+ * 读取方不会看到写了一半的文件。
+ * 每次替换同时为新文件建立一个不再修改的硬链接(.name.json.代次),供按文件名打开的 sendfile 使用,
+ * 替换后旧的代次保留 {@link #RETIRE_DELAY} 毫秒再删除,避免 sendfile 打开时文件已被替换成长度不同的内容。
+ * 文件名由接口路径和参数生成:
+ * article/42 -> article/42.json,comment?articleId=42&page=2 -> comment.articleId-42.page-2.json
+ *
+ * @author bihell
+ */
+@Slf4j
+@Component
+public class SnapshotStore {
+
+    public static final String JSON_SUFFIX = ".json";
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /**
+     * 允许的接口路径,如 article、article/42
+     */
+    private static final Pattern PATH_PATTERN = Pattern.compile("[a-z]+(/[0-9]+)?");
+
+    /**
+     * 代次文件名,如 .42.json.1700000000000
+     */
+    private static final Pattern GENERATION_PATTERN = Pattern.compile("\\..+\\.json(\\.gz)?\\.[0-9]+");
+
+    /**
+     * 被替换的代次保留的时间(毫秒)
+     */
+    private static final long RETIRE_DELAY = 60000L;
+
+    private final Path root;
+
+    /**
+     * 快照文件 -> 当前代次
+     */
+    private final Map<Path, Path> generations = new ConcurrentHashMap<>();
+
+    /**
+     * 等待删除的代次,元素为 [删除时间, 代次文件]
+     */
+    private final Queue<Object[]> retired = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+
+    @Autowired
+    public SnapshotStore(DiceSnapshotProperties snapshotProperties) {
+        String path = StringUtils.isBlank(snapshotProperties.getPath())
+                ? Paths.get(System.getProperty("user.home"), ".dice", "snapshot").toString() : snapshotProperties.getPath();
+        this.root = Paths.get(path).toAbsolutePath().normalize();
+        cleanGenerations();
+    }
+
+    /**
+     * 生成快照文件名
+     *
+     * @param path      接口路径,不含前缀
+     * @param articleId 文章id,可为null
+     * @param page      第几页,为null或1时省略
+     * @return 文件名,路径不合法时返回null
+     */
+    public static String fileName(String path, Integer articleId, Integer page) {
+        if (null == path || !PATH_PATTERN.matcher(path).matches()) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(path);
+        if (null != articleId) {
+            sb.append(".articleId-").append(articleId);
+        }
+        if (null != page && page > 1) {
+            sb.append(".page-").append(page);
+        }
+        return sb.append(JSON_SUFFIX).toString();
+    }
+
+    /**
+     * 快照文件的路径
+     *
+     * @param fileName {@link #fileName(String, Integer, Integer)} 生成的文件名
+     * @return Path
+     */
+    public Path resolve(String fileName) {
+        return root.resolve(fileName);
+    }
+
+    /**
+     * 快照文件当前内容的代次文件,内容不会再被修改,可以按文件名交给 sendfile
+     *
+     * @param file {@link #resolve(String)} 得到的文件,或对应的 .gz 文件
+     * @return 代次文件,没有时(如上次运行留下的快照或文件系统不支持硬链接)返回null
+     */
+    public Path generation(Path file) {
+        return generations.get(file);
+    }
+
+    /**
+     * 快照文件是否存在
+     *
+     * @param fileName 文件名
+     * @return boolean
+     */
+    public boolean exists(String fileName) {
+        return Files.isRegularFile(resolve(fileName));
+    }
+
+    /**
+     * 写入快照,同时写入 gzip 压缩版本
+     *
+     * @param fileName 文件名
+     * @param json     响应内容
+     */
+    public void write(String fileName, byte[] json) {
+        Path file = resolve(fileName);
+        try {
+            Files.createDirectories(file.getParent());
+            // 先写压缩版本,读取方以 json 文件为准
+            replace(file.resolveSibling(file.getFileName() + GZIP_SUFFIX), gzip(json));
+            replace(file, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入快照失败: " + file, e);
+        }
+    }
+
+    /**
+     * 删除快照
+     *
+     * @param fileName 文件名
+     */
+    public void delete(String fileName) {
+        Path file = resolve(fileName);
+        Path gzipFile = file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+        retire(generations.remove(file));
+        retire(generations.remove(gzipFile));
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(gzipFile);
+        } catch (IOException e) {
+            log.warn("删除快照失败: {}", file, e);
+        }
+    }
+
+    private void replace(Path target, byte[] content) throws IOException {
+        Path tmp = Files.createTempFile(target.getParent(), ".snapshot", ".tmp");
+        try {
+            Files.write(tmp, content);
+            Path link = target.resolveSibling("." + target.getFileName() + "." + generation.incrementAndGet());
+            try {
+                Files.createLink(link, tmp);
+            } catch (IOException | UnsupportedOperationException e) {
+                link = null;
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            retire(null == link ? generations.remove(target) : generations.put(target, link));
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        purgeRetired();
+    }
+
+    private void retire(Path link) {
+        if (null != link) {
+            retired.add(new Object[]{System.currentTimeMillis() + RETIRE_DELAY, link});
+        }
+    }
+
+    /**
+     * 删除到期的旧代次
+     */
+    private void purgeRetired() {
+        long now = System.currentTimeMillis();
+        Object[] head;
+        while (null != (head = retired.peek()) && (long) head[0] <= now) {
+            if (retired.remove(head)) {
+                try {
+                    Files.deleteIfExists((Path) head[1]);
+                } catch (IOException e) {
+                    log.warn("删除快照代次失败: {}", head[1], e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 删除上次运行留下的代次文件
+     */
+    private void cleanGenerations() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(file -> GENERATION_PATTERN.matcher(file.getFileName().toString()).matches())
+                    .forEach(file -> {
+                        try {
+                            Files.deleteIfExists(file);
+                        } catch (IOException e) {
+                            log.warn("删除快照代次失败: {}", file, e);
+                        }
+                    });
+        } catch (IOException e) {
+            log.warn("清理快照代次失败: {}", root, e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        // 离线压缩,使用最高压缩级别
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+}
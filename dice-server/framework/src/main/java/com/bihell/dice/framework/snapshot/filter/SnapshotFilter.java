@@ -0,0 +1,182 @@
+package com.bihell.dice.framework.snapshot.filter;
+
+import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.framework.shiro.util.JwtTokenUtil;
+import com.bihell.dice.framework.snapshot.SnapshotStore;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.function.Consumer;
+
+/**
+ * 静态快照 Filter
+ * <p>
+ * 匿名的 GET 请求有对应的快照文件时直接返回文件内容,不再经过 controller。
+ * 容器支持 sendfile 时(Tomcat 的 org.apache.tomcat.sendfile.support)把快照当前的代次文件交给容器零拷贝发送,
+ * 代次文件不会被修改,替换快照也不影响发送。
+ * 不支持 sendfile 或没有代次文件时,打开文件后用 {@link FileChannel#transferTo} 写入响应流,
+ * 这种方式经过堆内缓冲区复制,不是零拷贝;打开后的文件被原子替换也不影响本次发送。
+ * 没有快照或带有其他参数的请求继续交给后续处理。
+ * 返回快照的请求不经过拦截器,需要统计的(如文章点击量)通过 servedListener 处理
+ *
+ * @author bihell
+ */
+public class SnapshotFilter implements Filter {
+
+    private static final String PARAM_PAGE = "page";
+
+    private static final String PARAM_ARTICLE_ID = "articleId";
+
+    private static final String PARAM_LIMIT = "limit";
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final SnapshotStore snapshotStore;
+
+    private final String prefix;
+
+    /**
+     * 返回快照后调用,参数为去掉前缀的接口路径,如 article/1
+     */
+    private final Consumer<String> servedListener;
+
+    public SnapshotFilter(SnapshotStore snapshotStore, String prefix) {
+        this(snapshotStore, prefix, null);
+    }
+
+    public SnapshotFilter(SnapshotStore snapshotStore, String prefix, Consumer<String> servedListener) {
+        this.snapshotStore = snapshotStore;
+        this.prefix = prefix;
+        this.servedListener = servedListener;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain chain) throws IOException, ServletException {
+        HttpServletRequest request = (HttpServletRequest) servletRequest;
+        HttpServletResponse response = (HttpServletResponse) servletResponse;
+        String fileName = HttpMethod.GET.matches(request.getMethod()) ? resolveFileName(request) : null;
+        if (null == fileName || !snapshotStore.exists(fileName)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Path file = snapshotStore.resolve(fileName);
+        Path gzipFile = file.resolveSibling(file.getFileName() + SnapshotStore.GZIP_SUFFIX);
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = null != acceptEncoding && acceptEncoding.contains("gzip") && Files.isRegularFile(gzipFile);
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)) && sendfile(request, response, gzip ? gzipFile : file, gzip)) {
+            served(request);
+            return;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(gzip ? gzipFile : file, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // 快照刚好被删除
+            chain.doFilter(request, response);
+            return;
+        }
+
+        try (FileChannel in = channel) {
+            long size = in.size();
+            setHeaders(response, gzip, size);
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        served(request);
+    }
+
+    private void served(HttpServletRequest request) {
+        if (null != servedListener) {
+            servedListener.accept(request.getRequestURI().substring(request.getContextPath().length() + prefix.length()));
+        }
+    }
+
+    /**
+     * 由容器用 sendfile 发送代次文件
+     *
+     * @return 没有代次文件时返回false
+     */
+    private boolean sendfile(HttpServletRequest request, HttpServletResponse response, Path file, boolean gzip) {
+        Path generation = snapshotStore.generation(file);
+        if (null == generation) {
+            return false;
+        }
+        long size;
+        try {
+            size = Files.size(generation);
+        } catch (IOException e) {
+            return false;
+        }
+        setHeaders(response, gzip, size);
+        request.setAttribute(SENDFILE_FILENAME, generation.toString());
+        request.setAttribute(SENDFILE_START, 0L);
+        request.setAttribute(SENDFILE_END, size);
+        return true;
+    }
+
+    private void setHeaders(HttpServletResponse response, boolean gzip, long size) {
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLengthLong(size);
+    }
+
+    /**
+     * 由请求路径和参数生成快照文件名,不是匿名请求或有不支持的参数时返回null
+     */
+    private String resolveFileName(HttpServletRequest request) {
+        if (StringUtils.isNotEmpty(request.getHeader(JwtTokenUtil.getTokenName()))) {
+            return null;
+        }
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        if (!uri.startsWith(prefix)) {
+            return null;
+        }
+        Integer page = null;
+        Integer articleId = null;
+        Enumeration<String> names = request.getParameterNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            String value = request.getParameter(name);
+            if (PARAM_PAGE.equals(name) && NumberUtils.isDigits(value)) {
+                page = NumberUtils.toInt(value);
+            } else if (PARAM_ARTICLE_ID.equals(name) && NumberUtils.isDigits(value)) {
+                articleId = NumberUtils.toInt(value);
+            } else if (!(PARAM_LIMIT.equals(name) && DiceConsts.PAGE_SIZE.equals(value))) {
+                return null;
+            }
+        }
+        if (null != page && page < 1) {
+            return null;
+        }
+        return SnapshotStore.fileName(uri.substring(prefix.length()), articleId, page);
+    }
+}
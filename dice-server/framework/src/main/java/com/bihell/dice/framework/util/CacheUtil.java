@@ -51,5 +51,13 @@ public class CacheUtil {
         return getCache(cacheName).get(key, type);
     }
 
-
+    /**
+     * 移除缓存值
+     *
+     * @param cacheName 缓存名
+     * @param key       key
+     */
+    public void evictCacheValue(String cacheName, Object key) {
+        getCache(cacheName).evict(key);
+    }
 }
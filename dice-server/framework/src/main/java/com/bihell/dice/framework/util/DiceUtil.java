@@ -1,6 +1,7 @@
 package com.bihell.dice.framework.util;
 
 import com.bihell.dice.config.constant.DiceConsts;
+import com.bihell.dice.framework.cache.MarkdownRenderCache;
 import com.vladsch.flexmark.ast.Node;
 import com.vladsch.flexmark.ext.tables.TablesExtension;
 import com.vladsch.flexmark.html.HtmlRenderer;
@@ -172,6 +173,16 @@ public class DiceUtil {
             return "";
         }
 
+        return MarkdownRenderCache.get(md, false, true, DiceUtil::render);
+    }
+
+    /**
+     * 使用 flexmark 解析并渲染markdown
+     *
+     * @param md markdown字符串
+     * @return html字符串
+     */
+    private static String render(String md) {
         Node document = PARSER.parse(md);
         return HTML_RENDER.render(document);
     }
@@ -184,17 +195,29 @@ public class DiceUtil {
      * @param isHtml    是否为 html 格式
      */
     public static String contentTransform(String content, boolean isSummary, boolean isHtml) {
-        if (isSummary || isHtml) {
-            if (isSummary) {
-                content = DiceUtil.getSummary(content);
-            }
-            if (isHtml) {
-                content = DiceUtil.mdToHtml(content);
+        if (isHtml) {
+            if (StringUtils.isEmpty(content)) {
+                return "";
             }
+            return MarkdownRenderCache.get(content, isSummary, true,
+                    md -> DiceUtil.render(isSummary ? DiceUtil.getSummary(md) : md));
+        }
+        if (isSummary) {
+            content = DiceUtil.getSummary(content);
         }
         return content;
     }
 
+    /**
+     * 已保存的渲染结果是否需要重新渲染
+     *
+     * @param renderVersion 保存时的渲染版本
+     * @return 渲染版本为空或者低于当前版本返回true
+     */
+    public static boolean isRenderStale(Integer renderVersion) {
+        return null == renderVersion || renderVersion < DiceConsts.MARKDOWN_RENDER_VERSION;
+    }
+
     /**
      * 忽略大小写的indexOf
      *
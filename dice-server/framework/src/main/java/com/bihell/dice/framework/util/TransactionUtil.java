@@ -0,0 +1,33 @@
+package com.bihell.dice.framework.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务工具类
+ *
+ * @author bihell
+ */
+public class TransactionUtil {
+
+    private TransactionUtil() {
+    }
+
+    /**
+     * 在当前事务提交后执行,没有事务时立即执行
+     *
+     * @param action 要执行的操作
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -324,6 +324,9 @@ create table article
         primary key,
     title         varchar(255)         not null comment '内容标题',
     content       mediumtext           null comment '内容',
+    content_html  mediumtext           null comment '渲染后的内容html',
+    summary_html  text                 null comment '渲染后的摘要html',
+    render_version int                 null comment 'markdown渲染版本',
     hits          int        default 0 not null comment '点击量',
     tags          varchar(255)         null comment '标签列表',
     category      varchar(255)         null comment '文章分类',
@@ -331,12 +334,13 @@ create table article
     type          varchar(32)          null comment '内容类别',
     allow_comment tinyint(1) default 1 not null comment '是否允许评论',
     comment_count int        default 0 not null comment '评论数量',
-    priority      int        default 0 null comment '文章优先级',
+    priority      int        default 0 not null comment '文章优先级',
     create_time   timestamp            not null comment '创建时间',
     update_time   timestamp            not null default CURRENT_TIMESTAMP on update CURRENT_TIMESTAMP comment '更新时间',
     creator       int                  null comment '创建人',
     modifier      int                  null comment '修改人',
-    deleted       int        default 0 null comment '逻辑删除标识(0.未删除,1.已删除)'
+    deleted       int        default 0 null comment '逻辑删除标识(0.未删除,1.已删除)',
+    INDEX idx_article_front (status, type, priority, create_time, id)
 )
 charset = UTF8MB4;
 
@@ -347,6 +351,8 @@ create table comment
     article_id  int                                 not null,
     p_id        int                                 null,
     content     text                                not null,
+    content_html text                               null,
+    render_version int                              null,
     name        varchar(255)                        null,
     email       varchar(255)                        null,
     website     varchar(255)                        null,
@@ -355,15 +361,51 @@ create table comment
     ip          varchar(255)                        null,
     agent       varchar(255)                        null,
     status      int       default 0                 not null,
-    create_time timestamp default CURRENT_TIMESTAMP not null
+    create_time timestamp default CURRENT_TIMESTAMP not null,
+    INDEX idx_comment_article (article_id, status, id)
 )
     charset = utf8mb4;
 
+-- 评论队列已满时的暂存表
+CREATE TABLE comment_staging
+(
+    id          INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    article_id  INT                                 NOT NULL,
+    p_id        INT                                 NULL,
+    content     TEXT                                NOT NULL,
+    name        VARCHAR(255)                        NULL,
+    email       VARCHAR(255)                        NULL,
+    website     VARCHAR(255)                        NULL,
+    ip          VARCHAR(255)                        NULL,
+    agent       VARCHAR(255)                        NULL,
+    attempts    INT       DEFAULT 0                 NOT NULL,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+) ENGINE = InnoDB
+  DEFAULT CHARSET = UTF8MB4;
+
+-- 邮件发件箱
+CREATE TABLE mail_outbox
+(
+    id                INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    recipient         VARCHAR(255)                        NOT NULL,
+    subject           VARCHAR(255)                        NOT NULL,
+    content           MEDIUMTEXT                          NOT NULL,
+    status            INT       DEFAULT 0                 NOT NULL,
+    attempts          INT       DEFAULT 0                 NOT NULL,
+    next_attempt_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    last_error        VARCHAR(1000)                       NULL,
+    create_time       TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    send_time         TIMESTAMP                           NULL,
+    INDEX idx_mail_outbox_status (status, next_attempt_time)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = UTF8MB4;
+
 CREATE TABLE meta
 (
     id   INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
     name VARCHAR(255)    NOT NULL,
-    type VARCHAR(45)     NOT NULL
+    type VARCHAR(45)     NOT NULL,
+    UNIQUE KEY uk_meta_type_name (type, name)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = UTF8MB4;
 
@@ -371,7 +413,9 @@ CREATE TABLE middle
 (
     id   INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
     a_id INT             NOT NULL,
-    m_id INT             NOT NULL
+    m_id INT             NOT NULL,
+    INDEX idx_middle_m_id (m_id, a_id),
+    INDEX idx_middle_a_id (a_id)
 ) ENGINE = InnoDB
   DEFAULT CHARSET = UTF8MB4;
 
@@ -648,6 +692,10 @@ INSERT INTO dice.task (id, concurrent, cron, data, exec_at, exec_result, job_cla
 "appname": "dice",
 "version":2
 }', '2020-01-27 14:54:24', '执行成功', 'com.bihell.dice.service.task.job.HelloJob', 'default', '测试任务1', '测试任务1', 0, 1, '2018-12-28 09:54:00', -1, '2019-03-27 11:47:11', 0);
+INSERT INTO dice.task (id, concurrent, cron, data, exec_at, exec_result, job_class, job_group, name, note, status, creator, create_time, modifier, update_time, is_deleted) VALUES (2, 0, '0 0/30 * * * ?', '{
+"batchSize": 100
+}', null, null, 'com.bihell.dice.blog.service.task.job.ContentRenderJob', 'default', '回填渲染结果', '渲染版本变更后回填文章和评论的html', 1, 1, now(), -1, now(), 0);
+INSERT INTO dice.task (id, concurrent, cron, data, exec_at, exec_result, job_class, job_group, name, note, status, creator, create_time, modifier, update_time, is_deleted) VALUES (3, 0, '0 0 4 * * ?', '{}', null, null, 'com.bihell.dice.blog.service.task.job.SearchIndexJob', 'default', '重建全文索引', '从数据库重建全文索引,多节点部署时启用', 0, 1, now(), -1, now(), 0);
 
 CREATE TABLE `task_log` (
     `id` bigint NOT NULL AUTO_INCREMENT,
@@ -0,0 +1,81 @@
+-- 已有数据库升级脚本,按顺序执行
+
+-- 保存时渲染 markdown
+ALTER TABLE dice.article
+    ADD COLUMN content_html   mediumtext null comment '渲染后的内容html' AFTER content,
+    ADD COLUMN summary_html   text       null comment '渲染后的摘要html' AFTER content_html,
+    ADD COLUMN render_version int        null comment 'markdown渲染版本' AFTER summary_html;
+ALTER TABLE dice.comment
+    ADD COLUMN content_html   text null AFTER content,
+    ADD COLUMN render_version int  null AFTER content_html;
+INSERT INTO dice.task (concurrent, cron, data, job_class, job_group, name, note, status, creator, create_time, modifier, update_time, is_deleted)
+VALUES (0, '0 0/30 * * * ?', '{"batchSize": 100}', 'com.bihell.dice.blog.service.task.job.ContentRenderJob', 'default', '回填渲染结果', '渲染版本变更后回填文章和评论的html', 1, 1, now(), -1, now(), 0);
+
+-- 属性页一次关联查询
+ALTER TABLE dice.middle
+    ADD INDEX idx_middle_m_id (m_id, a_id),
+    ADD INDEX idx_middle_a_id (a_id);
+
+-- 全文索引重建任务,多节点部署时启用
+INSERT INTO dice.task (concurrent, cron, data, job_class, job_group, name, note, status, creator, create_time, modifier, update_time, is_deleted)
+VALUES (0, '0 0 4 * * ?', '{}', 'com.bihell.dice.blog.service.task.job.SearchIndexJob', 'default', '重建全文索引', '从数据库重建全文索引,多节点部署时启用', 0, 1, now(), -1, now(), 0);
+
+-- 评论树一次查询
+ALTER TABLE dice.comment
+    ADD INDEX idx_comment_article (article_id, status, id);
+
+-- 评论队列已满时的暂存表
+CREATE TABLE dice.comment_staging
+(
+    id          INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    article_id  INT                                 NOT NULL,
+    p_id        INT                                 NULL,
+    content     TEXT                                NOT NULL,
+    name        VARCHAR(255)                        NULL,
+    email       VARCHAR(255)                        NULL,
+    website     VARCHAR(255)                        NULL,
+    ip          VARCHAR(255)                        NULL,
+    agent       VARCHAR(255)                        NULL,
+    attempts    INT       DEFAULT 0                 NOT NULL,
+    create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+) ENGINE = InnoDB
+  DEFAULT CHARSET = UTF8MB4;
+
+-- 邮件发件箱,和评论在同一事务中写入
+CREATE TABLE dice.mail_outbox
+(
+    id                INT PRIMARY KEY NOT NULL AUTO_INCREMENT,
+    recipient         VARCHAR(255)                        NOT NULL,
+    subject           VARCHAR(255)                        NOT NULL,
+    content           MEDIUMTEXT                          NOT NULL,
+    status            INT       DEFAULT 0                 NOT NULL,
+    attempts          INT       DEFAULT 0                 NOT NULL,
+    next_attempt_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    last_error        VARCHAR(1000)                       NULL,
+    create_time       TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    send_time         TIMESTAMP                           NULL,
+    INDEX idx_mail_outbox_status (status, next_attempt_time)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = UTF8MB4;
+
+-- 前端文章游标分页,优先级不再为空以便使用索引
+UPDATE dice.article SET priority = 0 WHERE priority IS NULL;
+ALTER TABLE dice.article
+    MODIFY priority INT DEFAULT 0 NOT NULL COMMENT '文章优先级',
+    ADD INDEX idx_article_front (status, type, priority, create_time, id);
+
+-- 合并重复的属性后加 (type, name) 唯一索引
+UPDATE dice.middle mi
+    JOIN dice.meta m ON mi.m_id = m.id
+    JOIN (SELECT type, name, MIN(id) AS keep_id FROM dice.meta GROUP BY type, name HAVING COUNT(*) > 1) d
+    ON d.type = m.type AND d.name = m.name
+SET mi.m_id = d.keep_id
+WHERE m.id <> d.keep_id;
+DELETE a FROM dice.middle a
+    JOIN dice.middle b ON a.a_id = b.a_id AND a.m_id = b.m_id AND a.id > b.id;
+DELETE m FROM dice.meta m
+    JOIN (SELECT type, name, MIN(id) AS keep_id FROM dice.meta GROUP BY type, name) d
+    ON d.type = m.type AND d.name = m.name
+WHERE m.id <> d.keep_id;
+ALTER TABLE dice.meta
+    ADD UNIQUE KEY uk_meta_type_name (type, name);
@@ -22,6 +22,7 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import com.bihell.dice.framework.log.annotation.Module;
+import com.bihell.dice.framework.ratelimit.annotation.RateLimit;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -48,6 +49,7 @@ public class LoginController {
 
     @PostMapping("login")
     @OperationLogIgnore
+    @RateLimit(value = "login", capacity = 5, rate = 0.05)
     @ApiOperation(value = "登录", notes = "系统用户登录", response = LoginSysUserTokenVo.class)
     public ApiResult<LoginSysUserTokenVo> login(@Validated @RequestBody LoginParam loginParam, HttpServletResponse response) throws Exception {
         LoginSysUserTokenVo loginSysUserTokenVo = loginService.login(loginParam);